@@ -26,12 +26,17 @@ import com.loohp.imageframe.objectholders.FilledMapItemInfo;
 import com.loohp.imageframe.objectholders.MutablePair;
 import com.loohp.imageframe.utils.ReflectionUtils;
 import com.loohp.imageframe.utils.UUIDUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
 import net.kyori.adventure.key.Key;
 import net.minecraft.EnumChatFormat;
 import net.minecraft.core.Holder;
 import net.minecraft.core.component.DataComponentPatch;
 import net.minecraft.core.component.DataComponents;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.network.NetworkManager;
 import net.minecraft.network.chat.ChatModifier;
 import net.minecraft.network.chat.IChatBaseComponent;
 import net.minecraft.network.protocol.Packet;
@@ -75,6 +80,8 @@ import org.bukkit.map.MapCursor;
 import org.bukkit.map.MapView;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -84,6 +91,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -94,6 +102,13 @@ public class V1_21_8 extends NMSWrapper {
     private final Field craftMapViewWorldMapField;
     private final Field persistentIdCountsLastMapIdField;
     private final Field renderDataCursorsField;
+    private volatile Field playerConnectionNetworkManagerField;
+    private volatile Field networkManagerChannelField;
+    private volatile Field packetEncoderProtocolInfoField;
+    private volatile Method protocolInfoCodecMethod;
+    private volatile Method streamEncoderEncodeMethod;
+    private volatile List<Method> protocolInfoKeyMethods;
+    private volatile boolean packetSerializationUnsupported;
 
     public V1_21_8() {
         try {
@@ -235,6 +250,17 @@ public class V1_21_8 extends NMSWrapper {
         return new PacketPlayOutMap(new MapId(mapId), (byte) 0, false, Optional.ofNullable(mapIcons), Optional.ofNullable(c));
     }
 
+    @Override
+    public PacketPlayOutMap createMapPacket(int mapId, byte[] colors, Collection<MapCursor> cursors, int x, int y, int width, int height) {
+        List<MapIcon> mapIcons = cursors == null ? null : cursors.stream().map(this::toNMSMapIcon).collect(Collectors.toList());
+        byte[] patch = new byte[width * height];
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(colors, (y + row) * 128 + x, patch, row * width, width);
+        }
+        WorldMap.c c = new WorldMap.c(x, y, width, height, patch);
+        return new PacketPlayOutMap(new MapId(mapId), (byte) 0, false, Optional.ofNullable(mapIcons), Optional.of(c));
+    }
+
     @Override
     public PacketPlayOutEntityMetadata createItemFrameItemChangePacket(int entityId, ItemStack itemStack) {
         List<DataWatcher.c<?>> dataWatchers = Collections.singletonList(DataWatcher.c.a(EntityItemFrame.d, CraftItemStack.asNMSCopy(itemStack)));
@@ -281,6 +307,151 @@ public class V1_21_8 extends NMSWrapper {
         ((CraftPlayer) player).getHandle().g.b((Packet<?>) packet);
     }
 
+    private Channel getChannel(Player player) throws NoSuchFieldException, IllegalAccessException {
+        Object playerConnection = ((CraftPlayer) player).getHandle().g;
+        if (playerConnection == null) {
+            return null;
+        }
+        if (playerConnectionNetworkManagerField == null) {
+            playerConnectionNetworkManagerField = ReflectionUtils.findFieldByType(playerConnection.getClass(), NetworkManager.class);
+        }
+        NetworkManager networkManager = (NetworkManager) playerConnectionNetworkManagerField.get(playerConnection);
+        if (networkManagerChannelField == null) {
+            networkManagerChannelField = ReflectionUtils.findFieldByType(NetworkManager.class, Channel.class);
+        }
+        return (Channel) networkManagerChannelField.get(networkManager);
+    }
+
+    @Override
+    public long getConnectionWritableBytes(Player player) {
+        try {
+            Channel channel = getChannel(player);
+            if (channel == null) {
+                return -1;
+            }
+            return channel.isWritable() ? channel.bytesBeforeUnwritable() : 0;
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public Executor getConnectionEventLoop(Player player) {
+        try {
+            Channel channel = getChannel(player);
+            return channel == null ? null : channel.eventLoop();
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private Object getOutboundProtocolInfo(Channel channel) throws ReflectiveOperationException {
+        ChannelHandler encoder = channel.pipeline().get("encoder");
+        if (encoder == null) {
+            return null;
+        }
+        Field field = packetEncoderProtocolInfoField;
+        if (field == null) {
+            packetEncoderProtocolInfoField = field = ReflectionUtils.findFieldByType(encoder.getClass(), Class.forName("net.minecraft.network.ProtocolInfo"));
+        }
+        if (!field.getDeclaringClass().isInstance(encoder)) {
+            return null;
+        }
+        return field.get(encoder);
+    }
+
+    /**
+     * The game protocol info is bound anew for every connection, always from the same template and with the
+     * registry access of the server, so its id and flow identify how a packet is encoded on the connection.
+     */
+    private List<Object> getProtocolKey(Object protocolInfo) throws ReflectiveOperationException {
+        List<Method> methods = protocolInfoKeyMethods;
+        List<Object> key = new ArrayList<>(methods.size());
+        for (Method method : methods) {
+            key.add(method.invoke(protocolInfo));
+        }
+        return key;
+    }
+
+    @Override
+    public Object serializePacket(Player player, Object packet) {
+        if (packetSerializationUnsupported) {
+            return null;
+        }
+        Object protocolInfo;
+        try {
+            Channel channel = getChannel(player);
+            if (channel == null) {
+                return null;
+            }
+            protocolInfo = getOutboundProtocolInfo(channel);
+            if (protocolInfo == null) {
+                return null;
+            }
+            if (protocolInfoCodecMethod == null) {
+                Class<?> protocolInfoClass = Class.forName("net.minecraft.network.ProtocolInfo");
+                Class<?> streamCodecClass = Class.forName("net.minecraft.network.codec.StreamCodec");
+                Class<?> streamEncoderClass = Class.forName("net.minecraft.network.codec.StreamEncoder");
+                Method encodeMethod = null;
+                for (Method method : streamEncoderClass.getMethods()) {
+                    if (Modifier.isAbstract(method.getModifiers()) && method.getParameterCount() == 2) {
+                        encodeMethod = method;
+                    }
+                }
+                Method codecMethod = null;
+                List<Method> keyMethods = new ArrayList<>();
+                for (Method method : protocolInfoClass.getMethods()) {
+                    if (method.getParameterCount() == 0) {
+                        if (streamCodecClass.isAssignableFrom(method.getReturnType())) {
+                            codecMethod = method;
+                        } else if (method.getReturnType().isEnum()) {
+                            keyMethods.add(method);
+                        }
+                    }
+                }
+                if (encodeMethod == null || codecMethod == null || keyMethods.isEmpty()) {
+                    throw new NoSuchMethodException("ProtocolInfo codec");
+                }
+                streamEncoderEncodeMethod = encodeMethod;
+                protocolInfoKeyMethods = keyMethods;
+                protocolInfoCodecMethod = codecMethod;
+            }
+        } catch (ReflectiveOperationException e) {
+            packetSerializationUnsupported = true;
+            return null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+        try {
+            Object codec = protocolInfoCodecMethod.invoke(protocolInfo);
+            ByteBuf buffer = Unpooled.buffer();
+            streamEncoderEncodeMethod.invoke(codec, buffer, packet);
+            return new SerializedPacket(getProtocolKey(protocolInfo), Unpooled.unreleasableBuffer(buffer.asReadOnly()));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Only this packet could not be encoded
+            return null;
+        }
+    }
+
+    @Override
+    public boolean sendSerializedPacket(Player player, Object serializedPacket) {
+        try {
+            SerializedPacket packet = (SerializedPacket) serializedPacket;
+            Channel channel = getChannel(player);
+            if (channel == null) {
+                return false;
+            }
+            Object protocolInfo = getOutboundProtocolInfo(channel);
+            if (protocolInfo == null || !getProtocolKey(protocolInfo).equals(packet.protocolKey)) {
+                return false;
+            }
+            channel.writeAndFlush(packet.buffer.duplicate(), channel.voidPromise());
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+
     @SuppressWarnings("OptionalGetWithoutIsPresent")
     @Override
     public CombinedMapItemInfo getCombinedMapItemInfo(ItemStack itemStack) {
@@ -387,4 +558,16 @@ public class V1_21_8 extends NMSWrapper {
         return Key.key(key.getNamespace(), key.getKey());
     }
 
+    private static class SerializedPacket {
+
+        private final List<Object> protocolKey;
+        private final ByteBuf buffer;
+
+        private SerializedPacket(List<Object> protocolKey, ByteBuf buffer) {
+            this.protocolKey = protocolKey;
+            this.buffer = buffer;
+        }
+
+    }
+
 }
@@ -34,6 +34,7 @@ import org.bukkit.map.MapView;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 public abstract class NMSWrapper {
 
@@ -62,12 +63,55 @@ public abstract class NMSWrapper {
 
     public abstract Object createMapPacket(int mapId, byte[] colors, Collection<MapCursor> cursors);
 
+    /**
+     * Creates a map packet that only updates the given area of the map, versions that do not support
+     * partial updates send the whole map instead.
+     *
+     * @param colors the colors of the whole map
+     */
+    public Object createMapPacket(int mapId, byte[] colors, Collection<MapCursor> cursors, int x, int y, int width, int height) {
+        return createMapPacket(mapId, colors, cursors);
+    }
+
     public abstract Object createItemFrameItemChangePacket(int entityId, ItemStack itemStack);
 
     public abstract Object createEntityFlagsPacket(Entity entity, Boolean invisible, Boolean glowing);
 
     public abstract void sendPacket(Player player, Object packet);
 
+    /**
+     * @return the number of bytes that can be queued on the connection of the player before it stops
+     * being writable, 0 if it is currently not writable, or -1 if this is not supported on this version
+     */
+    public long getConnectionWritableBytes(Player player) {
+        return -1;
+    }
+
+    /**
+     * @return the network event loop of the connection of the player, or null if this is not supported on this version
+     */
+    public Executor getConnectionEventLoop(Player player) {
+        return null;
+    }
+
+    /**
+     * Encodes the packet once so that the same bytes can be written to the connection of many players.
+     *
+     * @param player a player whose connection the packet is encoded for
+     * @return the encoded packet, or null if this is not supported on this version
+     */
+    public Object serializePacket(Player player, Object packet) {
+        return null;
+    }
+
+    /**
+     * @return true if the encoded packet was written, or false if it can not be written to the connection
+     * of the player, in which case the packet should be sent with {@link #sendPacket(Player, Object)} instead
+     */
+    public boolean sendSerializedPacket(Player player, Object serializedPacket) {
+        return false;
+    }
+
     public abstract CombinedMapItemInfo getCombinedMapItemInfo(ItemStack itemStack);
 
     public abstract ItemStack withCombinedMapItemInfo(ItemStack itemStack, CombinedMapItemInfo combinedMapItemInfo);
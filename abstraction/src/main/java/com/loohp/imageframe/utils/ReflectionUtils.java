@@ -44,6 +44,18 @@ public class ReflectionUtils {
         }
     }
 
+    public static Field findFieldByType(Class<?> clazz, Class<?> fieldType) throws NoSuchFieldException {
+        for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (fieldType.isAssignableFrom(field.getType())) {
+                    field.setAccessible(true);
+                    return field;
+                }
+            }
+        }
+        throw new NoSuchFieldException(fieldType.getName() + " in " + clazz.getName());
+    }
+
     public static Method findDeclaredMethod(Class<?> clazz, Class<?>[] parameters, String... names) throws NoSuchMethodException {
         NoSuchMethodException exception = null;
         for (String name : names) {
@@ -0,0 +1,57 @@
+/*
+ * This file is part of ImageFrame.
+ *
+ * Copyright (C) 2025. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2025. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.imageframe.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+public class BenchmarkImages {
+
+    public static final long SEED = 106031;
+
+    /**
+     * Creates a deterministic photo-like test image, smooth gradients with noise
+     * and a few fully transparent patches, so that both dithering and
+     * transparency handling are exercised.
+     */
+    public static BufferedImage createTestImage(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        Random random = new Random(SEED);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = clamp((x * 255 / Math.max(1, width - 1)) + random.nextInt(32) - 16);
+                int g = clamp((y * 255 / Math.max(1, height - 1)) + random.nextInt(32) - 16);
+                int b = clamp(((x + y) * 255 / Math.max(1, width + height - 2)) + random.nextInt(32) - 16);
+                boolean transparent = ((x / 96) + (y / 96)) % 11 == 0;
+                int a = transparent ? 0 : 255;
+                pixels[y * width + x] = (a << 24) | (r << 16) | (g << 8) | b;
+            }
+        }
+        return image;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+}
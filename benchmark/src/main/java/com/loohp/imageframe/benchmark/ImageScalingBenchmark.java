@@ -0,0 +1,81 @@
+/*
+ * This file is part of ImageFrame.
+ *
+ * Copyright (C) 2025. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2025. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.imageframe.benchmark;
+
+import com.loohp.imageframe.utils.MapUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4G", "-Xmx4G", "-Djava.awt.headless=true"})
+public class ImageScalingBenchmark {
+
+    public static final int SOURCE_WIDTH = 1920;
+    public static final int SOURCE_HEIGHT = 1080;
+
+    /**
+     * Map grid size, the source is resized to gridSize x gridSize maps
+     */
+    @Param({"1", "2", "4", "8", "16"})
+    public int gridSize;
+
+    private BufferedImage source;
+    private BufferedImage resized;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        source = BenchmarkImages.createTestImage(SOURCE_WIDTH, SOURCE_HEIGHT);
+        resized = MapUtils.resize(source, gridSize, gridSize);
+    }
+
+    @Benchmark
+    public BufferedImage resize() {
+        return MapUtils.resize(source, gridSize, gridSize);
+    }
+
+    @Benchmark
+    public void getSubImage(Blackhole blackhole) {
+        for (int y = 0; y < gridSize; y++) {
+            for (int x = 0; x < gridSize; x++) {
+                blackhole.consume(MapUtils.getSubImage(resized, x, y));
+            }
+        }
+    }
+
+}
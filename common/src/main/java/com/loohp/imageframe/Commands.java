@@ -145,8 +145,7 @@ public class Commands implements CommandExecutor, TabCompleter {
                     }
                     UUID owner = player.getUniqueId();
                     int limit = ImageFrame.getPlayerCreationLimit(player);
-                    Set<ImageMap> existingMaps = ImageFrame.imageMapManager.getFromCreator(owner);
-                    if (limit >= 0 && existingMaps.size() >= limit) {
+                    if (limit >= 0 && ImageFrame.imageMapManager.getMapCount(owner) >= limit) {
                         sendMessage(sender, translatable(PLAYER_CREATION_LIMIT_REACHED, limit).color(NamedTextColor.RED));
                         return true;
                     }
@@ -307,12 +306,11 @@ public class Commands implements CommandExecutor, TabCompleter {
                                     return true;
                                 }
                                 int limit = isAdmin ? -1 : ImageFrame.getPlayerCreationLimit(player);
-                                Set<ImageMap> existingMaps = ImageFrame.imageMapManager.getFromCreator(owner);
-                                if (limit >= 0 && existingMaps.size() >= limit) {
+                                if (limit >= 0 && ImageFrame.imageMapManager.getMapCount(owner) >= limit) {
                                     sendMessage(sender, translatable(PLAYER_CREATION_LIMIT_REACHED, limit).color(NamedTextColor.RED));
                                     return true;
                                 }
-                                if (existingMaps.stream().anyMatch(each -> each.getName().equalsIgnoreCase(name))) {
+                                if (ImageFrame.imageMapManager.hasMapNamed(owner, name)) {
                                     sendMessage(sender, translatable(DUPLICATE_MAP_NAME).color(NamedTextColor.RED));
                                     return true;
                                 }
@@ -466,7 +464,7 @@ public class Commands implements CommandExecutor, TabCompleter {
                                         sendMessage(player, translatable(SELECTION_INVALID).color(NamedTextColor.RED));
                                         return true;
                                     }
-                                    if (mapViews.stream().anyMatch(each -> ImageFrame.imageMapManager.getFromMapView(each) != null) || mapViews.stream().distinct().count() < mapViews.size()) {
+                                    if (mapViews.stream().anyMatch(each -> ImageFrame.imageMapManager.isImageMapId(each.getId())) || mapViews.stream().distinct().count() < mapViews.size()) {
                                         sendMessage(player, translatable(INVALID_OVERLAY_MAP).color(NamedTextColor.RED));
                                         return true;
                                     }
@@ -476,12 +474,11 @@ public class Commands implements CommandExecutor, TabCompleter {
                                         return true;
                                     }
                                     int limit = isAdmin ? -1 : ImageFrame.getPlayerCreationLimit(player);
-                                    Set<ImageMap> existingMaps = ImageFrame.imageMapManager.getFromCreator(owner);
-                                    if (limit >= 0 && existingMaps.size() >= limit) {
+                                    if (limit >= 0 && ImageFrame.imageMapManager.getMapCount(owner) >= limit) {
                                         sendMessage(sender, translatable(PLAYER_CREATION_LIMIT_REACHED, limit).color(NamedTextColor.RED));
                                         return true;
                                     }
-                                    if (existingMaps.stream().anyMatch(each -> each.getName().equalsIgnoreCase(name))) {
+                                    if (ImageFrame.imageMapManager.hasMapNamed(owner, name)) {
                                         sendMessage(sender, translatable(DUPLICATE_MAP_NAME).color(NamedTextColor.RED));
                                         return true;
                                     }
@@ -591,12 +588,11 @@ public class Commands implements CommandExecutor, TabCompleter {
                                     }
                                 }
                                 int limit = isAdmin ? -1 : ImageFrame.getPlayerCreationLimit(player);
-                                Set<ImageMap> existingMaps = ImageFrame.imageMapManager.getFromCreator(owner);
-                                if (limit >= 0 && existingMaps.size() >= limit) {
+                                if (limit >= 0 && ImageFrame.imageMapManager.getMapCount(owner) >= limit) {
                                     sendMessage(sender, translatable(PLAYER_CREATION_LIMIT_REACHED, limit).color(NamedTextColor.RED));
                                     return true;
                                 }
-                                if (existingMaps.stream().anyMatch(each -> each.getName().equalsIgnoreCase(name))) {
+                                if (ImageFrame.imageMapManager.hasMapNamed(owner, name)) {
                                     sendMessage(sender, translatable(DUPLICATE_MAP_NAME).color(NamedTextColor.RED));
                                     return true;
                                 }
@@ -995,7 +991,7 @@ public class Commands implements CommandExecutor, TabCompleter {
                         sendMessage(sender, translatable(NO_PERMISSION).color(NamedTextColor.RED));
                     } else {
                         String newName = args[2];
-                        if (ImageFrame.imageMapManager.getFromCreator(imageMap.getCreator(), newName) == null) {
+                        if (!ImageFrame.imageMapManager.hasMapNamed(imageMap.getCreator(), newName)) {
                             Scheduler.runTaskAsynchronously(ImageFrame.plugin, () -> {
                                 try {
                                     imageMap.rename(newName);
@@ -28,11 +28,14 @@ import com.loohp.imageframe.listeners.Events;
 import com.loohp.imageframe.metrics.Charts;
 import com.loohp.imageframe.metrics.Metrics;
 import com.loohp.imageframe.objectholders.AnimatedFakeMapManager;
+import com.loohp.imageframe.objectholders.BlankMapFileChecker;
 import com.loohp.imageframe.objectholders.CombinedMapItemHandler;
+import com.loohp.imageframe.objectholders.DispatchMode;
 import com.loohp.imageframe.objectholders.IFPlayerManager;
 import com.loohp.imageframe.objectholders.IFPlayerPreference;
 import com.loohp.imageframe.objectholders.ImageMap;
 import com.loohp.imageframe.objectholders.ImageMapAccessPermissionType;
+import com.loohp.imageframe.objectholders.ImageMapCacheBudgetManager;
 import com.loohp.imageframe.objectholders.ImageMapCacheControlMode;
 import com.loohp.imageframe.objectholders.ImageMapCreationTaskManager;
 import com.loohp.imageframe.objectholders.ImageMapLoaders;
@@ -42,6 +45,7 @@ import com.loohp.imageframe.objectholders.IntRangeList;
 import com.loohp.imageframe.objectholders.ItemFrameSelectionManager;
 import com.loohp.imageframe.objectholders.MapMarkerEditManager;
 import com.loohp.imageframe.objectholders.RateLimitedPacketSendingManager;
+import com.loohp.imageframe.objectholders.SharedMapPacketCache;
 import com.loohp.imageframe.objectholders.UnsetState;
 import com.loohp.imageframe.placeholderapi.Placeholders;
 import com.loohp.imageframe.storage.ImageFrameStorage;
@@ -51,6 +55,7 @@ import com.loohp.imageframe.upload.ImageUploadManager;
 import com.loohp.imageframe.utils.ChatColorUtils;
 import com.loohp.imageframe.utils.KeyUtils;
 import com.loohp.imageframe.utils.MCVersion;
+import com.loohp.imageframe.utils.MapPaletteIndex;
 import com.loohp.imageframe.utils.ModernEventsUtils;
 import com.loohp.platformscheduler.ScheduledTask;
 import com.loohp.platformscheduler.Scheduler;
@@ -106,8 +111,17 @@ public class ImageFrame extends JavaPlugin {
     public static long maxImageFileSize;
     public static int maxProcessingTime;
     public static int parallelProcessingLimit;
+    public static int mapLoadingConcurrency;
+    public static int mapLoadingBatchSize;
+    public static boolean lazyMapLoading;
 
     public static int rateLimit;
+    public static long byteRateLimit;
+    public static long sharedMapPacketCacheSize;
+    public static boolean preSerializeMapPackets;
+    public static boolean partialAnimatedMapUpdates;
+    public static DispatchMode packetDispatchMode;
+    public static int packetDispatchThreads;
 
     public static IntRangeList exemptMapIdsFromDeletion;
 
@@ -116,7 +130,10 @@ public class ImageFrame extends JavaPlugin {
     public static boolean sendAnimatedMapsOnMainThread;
 
     public static ImageMapCacheControlMode<?> cacheControlMode;
+    public static long cacheControlMemoryBudget;
     public static boolean tryDeleteBlankMapFiles;
+    public static boolean persistPaletteIndex;
+    public static boolean persistAnimatedColorCache;
 
     public static boolean combinedByDefault;
 
@@ -124,6 +141,8 @@ public class ImageFrame extends JavaPlugin {
     public static String uploadServiceDisplayURL;
     public static String uploadServiceServerAddress;
     public static int uploadServiceServerPort;
+    public static DispatchMode uploadServiceThreadMode;
+    public static int uploadServiceThreads;
 
     public static int invisibleFrameMaxConversionsPerSplash;
     public static boolean invisibleFrameGlowEmptyFrames;
@@ -139,6 +158,7 @@ public class ImageFrame extends JavaPlugin {
     public static MapMarkerEditManager mapMarkerEditManager;
     public static CombinedMapItemHandler combinedMapItemHandler;
     public static AnimatedFakeMapManager animatedFakeMapManager;
+    public static BlankMapFileChecker blankMapFileChecker;
     public static RateLimitedPacketSendingManager rateLimitedPacketSendingManager;
     public static InvisibleFrameManager invisibleFrameManager;
     public static ImageMapCreationTaskManager imageMapCreationTaskManager;
@@ -249,6 +269,10 @@ public class ImageFrame extends JavaPlugin {
         }
         reloadConfig();
 
+        if (persistPaletteIndex) {
+            MapPaletteIndex.setPersistentFile(new File(getDataFolder(), "cache/palette-index.bin"));
+        }
+
         getCommand("imageframe").setExecutor(new Commands());
 
         if (isPluginEnabled("ViaVersion")) {
@@ -262,6 +286,8 @@ public class ImageFrame extends JavaPlugin {
         if (ModernEventsUtils.modernEventsExists()) {
             getServer().getPluginManager().registerEvents(new Events.ModernEvents(), this);
         }
+        boolean entityTrackingEvents = Events.registerEntityTrackingEvents(this);
+        getServer().getPluginManager().registerEvents(SharedMapPacketCache.getInstance(), this);
 
         languageManager = new LanguageManager();
         imageFrameStorage = ImageFrameStorageLoaders.create(storageType, getDataFolder(), storageOptions);
@@ -270,11 +296,12 @@ public class ImageFrame extends JavaPlugin {
         itemFrameSelectionManager = new ItemFrameSelectionManager();
         mapMarkerEditManager = new MapMarkerEditManager();
         combinedMapItemHandler = new CombinedMapItemHandler();
-        animatedFakeMapManager = new AnimatedFakeMapManager();
-        rateLimitedPacketSendingManager = new RateLimitedPacketSendingManager();
+        animatedFakeMapManager = new AnimatedFakeMapManager(entityTrackingEvents);
+        blankMapFileChecker = new BlankMapFileChecker();
+        rateLimitedPacketSendingManager = new RateLimitedPacketSendingManager(packetDispatchMode, packetDispatchThreads);
         invisibleFrameManager = new InvisibleFrameManager();
         imageMapCreationTaskManager = new ImageMapCreationTaskManager(ImageFrame.parallelProcessingLimit);
-        imageUploadManager = new ImageUploadManager(uploadServiceEnabled, uploadServiceServerAddress, uploadServiceServerPort);
+        imageUploadManager = new ImageUploadManager(uploadServiceEnabled, uploadServiceServerAddress, uploadServiceServerPort, uploadServiceThreadMode, uploadServiceThreads);
 
         if (isPluginEnabled("PlaceholderAPI")) {
             new Placeholders().register();
@@ -341,6 +368,9 @@ public class ImageFrame extends JavaPlugin {
         maxImageFileSize = config.getConfiguration().getLong("Settings.MaxImageFileSize");
         maxProcessingTime = config.getConfiguration().getInt("Settings.MaxProcessingTime");
         parallelProcessingLimit = config.getConfiguration().getInt("Settings.ParallelProcessingLimit");
+        mapLoadingConcurrency = config.getConfiguration().getInt("Settings.MapLoadingConcurrency");
+        mapLoadingBatchSize = config.getConfiguration().getInt("Settings.MapLoadingBatchSize");
+        lazyMapLoading = config.getConfiguration().getBoolean("Settings.LazyMapLoading");
 
         exemptMapIdsFromDeletion = config.getConfiguration().getList("Settings.ExemptMapIdsFromDeletion").stream().map(v -> {
             try {
@@ -356,13 +386,25 @@ public class ImageFrame extends JavaPlugin {
         }).filter(v -> v != null).collect(Collectors.toCollection(IntRangeList::new));
 
         rateLimit = config.getConfiguration().getInt("Settings.MapPacketSendingRateLimit");
+        int byteRateLimitKilobytes = config.getConfiguration().getInt("Settings.MapPacketSendingByteRateLimit");
+        byteRateLimit = byteRateLimitKilobytes < 0 ? -1 : byteRateLimitKilobytes * 1024L;
+        sharedMapPacketCacheSize = config.getConfiguration().getLong("Settings.SharedMapPacketCacheSize") * 1024 * 1024;
+        SharedMapPacketCache.getInstance().setMaxSize(sharedMapPacketCacheSize);
+        preSerializeMapPackets = config.getConfiguration().getBoolean("Settings.PreSerializeMapPackets");
+        partialAnimatedMapUpdates = config.getConfiguration().getBoolean("Settings.PartialAnimatedMapUpdates");
+        packetDispatchMode = DispatchMode.fromName(config.getConfiguration().getString("Settings.PacketDispatchMode"));
+        packetDispatchThreads = config.getConfiguration().getInt("Settings.PacketDispatchThreads");
 
         mapRenderersContextual = config.getConfiguration().getBoolean("Settings.MapRenderersContextual");
         handleAnimatedMapsOnMainThread = config.getConfiguration().getBoolean("Settings.HandleAnimatedMapsOnMainThread");
         sendAnimatedMapsOnMainThread = config.getConfiguration().getBoolean("Settings.SendAnimatedMapsOnMainThread");
 
         cacheControlMode = ImageMapCacheControlMode.valueOf(config.getConfiguration().getString("Settings.CacheControlMode"));
+        cacheControlMemoryBudget = config.getConfiguration().getLong("Settings.CacheControlMemoryBudget") * 1024 * 1024;
+        ImageMapCacheBudgetManager.getInstance().setBudget(cacheControlMemoryBudget <= 0 ? Long.MAX_VALUE : cacheControlMemoryBudget);
         tryDeleteBlankMapFiles = config.getConfiguration().getBoolean("Settings.TryDeleteBlankMapFiles");
+        persistPaletteIndex = config.getConfiguration().getBoolean("Settings.PersistPaletteIndex");
+        persistAnimatedColorCache = config.getConfiguration().getBoolean("Settings.PersistAnimatedColorCache");
 
         combinedByDefault = config.getConfiguration().getBoolean("Settings.CombinedByDefault");
 
@@ -370,6 +412,8 @@ public class ImageFrame extends JavaPlugin {
         uploadServiceDisplayURL = config.getConfiguration().getString("UploadService.DisplayURL");
         uploadServiceServerAddress = config.getConfiguration().getString("UploadService.WebServer.Host");
         uploadServiceServerPort = config.getConfiguration().getInt("UploadService.WebServer.Port");
+        uploadServiceThreadMode = DispatchMode.fromName(config.getConfiguration().getString("UploadService.WebServer.ThreadMode"));
+        uploadServiceThreads = config.getConfiguration().getInt("UploadService.WebServer.Threads");
 
         invisibleFrameMaxConversionsPerSplash = config.getConfiguration().getInt("InvisibleFrame.MaxConversionsPerSplash");
         invisibleFrameGlowEmptyFrames = config.getConfiguration().getBoolean("InvisibleFrame.GlowEmptyFrames");
@@ -21,10 +21,12 @@
 package com.loohp.imageframe.listeners;
 
 import com.loohp.imageframe.ImageFrame;
+import com.loohp.imageframe.objectholders.ImageMapCacheControlScheduler;
 import com.loohp.imageframe.utils.MapUtils;
 import com.loohp.imageframe.utils.ModernEventsUtils;
 import com.loohp.imageframe.utils.SlotAccessor;
 import com.loohp.platformscheduler.Scheduler;
+import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.Material;
 import org.bukkit.entity.Entity;
@@ -41,6 +43,7 @@ import org.bukkit.event.inventory.ClickType;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryDragEvent;
 import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.player.PlayerEvent;
 import org.bukkit.event.player.PlayerInteractEntityEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerItemHeldEvent;
@@ -53,6 +56,10 @@ import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.map.MapView;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 
 import static com.loohp.imageframe.objectholders.CombinedMapItemHandler.containsCombinedMaps;
 import static com.loohp.imageframe.objectholders.CombinedMapItemHandler.isCombinedMaps;
@@ -106,7 +113,7 @@ public class Events implements Listener {
                     if (mapView == null) {
                         return;
                     }
-                    if (ImageFrame.imageMapManager.getFromMapView(mapView) == null) {
+                    if (!ImageFrame.imageMapManager.isImageMapId(mapView.getId())) {
                         return;
                     }
                     int count = 0;
@@ -148,7 +155,7 @@ public class Events implements Listener {
                     if (mapView == null) {
                         return;
                     }
-                    if (ImageFrame.imageMapManager.getFromMapView(mapView) == null) {
+                    if (!ImageFrame.imageMapManager.isImageMapId(mapView.getId())) {
                         return;
                     }
                     ItemStack item = event.getView().getItem(1);
@@ -184,6 +191,8 @@ public class Events implements Listener {
         if (currentMapView != null) {
             if (ImageFrame.imageMapManager.isMapDeleted(currentMapView) && !ImageFrame.exemptMapIdsFromDeletion.satisfies(currentMapView.getId())) {
                 inventory.setItem(slot, new ItemStack(Material.MAP, currentItem.getAmount()));
+            } else {
+                ImageMapCacheControlScheduler.markViewerStateChanged(currentMapView);
             }
         }
         ItemStack replacement = processImageFilledMap(inventory.getItem(slot));
@@ -239,6 +248,8 @@ public class Events implements Listener {
             if (mapView != null) {
                 if (ImageFrame.imageMapManager.isMapDeleted(mapView) && !ImageFrame.exemptMapIdsFromDeletion.satisfies(mapView.getId())) {
                     itemFrame.setItem(new ItemStack(Material.MAP, itemStack.getAmount()), false);
+                } else {
+                    ImageMapCacheControlScheduler.markViewerStateChanged(mapView);
                 }
             }
         }
@@ -290,6 +301,8 @@ public class Events implements Listener {
                     if (mapView != null) {
                         if (ImageFrame.imageMapManager.isMapDeleted(mapView) && !ImageFrame.exemptMapIdsFromDeletion.satisfies(mapView.getId())) {
                             Scheduler.runTask(ImageFrame.plugin, () -> itemFrame.setItem(new ItemStack(Material.MAP, itemStack.getAmount()), false), itemFrame);
+                        } else {
+                            ImageMapCacheControlScheduler.markViewerStateChanged(mapView);
                         }
                     }
                 }
@@ -301,6 +314,7 @@ public class Events implements Listener {
     public void onPlayerJoin(PlayerJoinEvent event) {
         Inventory inventory = event.getPlayer().getInventory();
         processImageFilledMaps(SlotAccessor.of(i -> inventory.getItem(i), (i, s) -> inventory.setItem(i, s)), inventory.getSize());
+        ImageMapCacheControlScheduler.markViewerStateChanged(MapUtils.getPlayerMapView(event.getPlayer()));
     }
 
     @EventHandler(priority = EventPriority.LOWEST)
@@ -309,6 +323,68 @@ public class Events implements Listener {
         processImageFilledMaps(SlotAccessor.of(i -> inventory.getItem(i), (i, s) -> inventory.setItem(i, s)), inventory.getSize());
     }
 
+    /**
+     * Registers Paper's entity tracking events if they exist, so that image maps in item frames
+     * are checked for viewers as soon as a player starts tracking the item frame.
+     *
+     * @return whether both the track and untrack events are registered
+     */
+    @SuppressWarnings("unchecked")
+    public static boolean registerEntityTrackingEvents(Plugin plugin) {
+        Class<? extends Event> eventClass;
+        Method getEntityMethod;
+        try {
+            eventClass = (Class<? extends Event>) Class.forName("io.papermc.paper.event.player.PlayerTrackEntityEvent");
+            getEntityMethod = eventClass.getMethod("getEntity");
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            return false;
+        }
+        Bukkit.getPluginManager().registerEvent(eventClass, new Listener() {}, EventPriority.MONITOR, (listener, event) -> {
+            if (!eventClass.isInstance(event)) {
+                return;
+            }
+            try {
+                Object entity = getEntityMethod.invoke(event);
+                if (entity instanceof ItemFrame) {
+                    MapView mapView = MapUtils.getItemMapView(((ItemFrame) entity).getItem());
+                    ImageMapCacheControlScheduler.markViewerStateChanged(mapView);
+                    // The server sends the map in full to the player when the item frame is paired
+                    if (mapView != null && ImageFrame.rateLimitedPacketSendingManager != null) {
+                        ImageFrame.rateLimitedPacketSendingManager.invalidateLastQueuedColors(((PlayerEvent) event).getPlayer(), mapView.getId());
+                    }
+                    if (ImageFrame.animatedFakeMapManager != null) {
+                        ImageFrame.animatedFakeMapManager.handleTrack(((PlayerEvent) event).getPlayer(), (Entity) entity);
+                    }
+                }
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                e.printStackTrace();
+            }
+        }, plugin, true);
+
+        Class<? extends Event> untrackEventClass;
+        Method untrackGetEntityMethod;
+        try {
+            untrackEventClass = (Class<? extends Event>) Class.forName("io.papermc.paper.event.player.PlayerUntrackEntityEvent");
+            untrackGetEntityMethod = untrackEventClass.getMethod("getEntity");
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            return false;
+        }
+        Bukkit.getPluginManager().registerEvent(untrackEventClass, new Listener() {}, EventPriority.MONITOR, (listener, event) -> {
+            if (!untrackEventClass.isInstance(event)) {
+                return;
+            }
+            try {
+                Object entity = untrackGetEntityMethod.invoke(event);
+                if (entity instanceof ItemFrame && ImageFrame.animatedFakeMapManager != null) {
+                    ImageFrame.animatedFakeMapManager.handleUntrack(((PlayerEvent) event).getPlayer(), (Entity) entity);
+                }
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                e.printStackTrace();
+            }
+        }, plugin, false);
+        return true;
+    }
+
     public static class ModernEvents implements Listener {
 
         @EventHandler(priority = EventPriority.NORMAL)
@@ -321,6 +397,8 @@ public class Events implements Listener {
                     if (mapView != null) {
                         if (ImageFrame.imageMapManager.isMapDeleted(mapView) && !ImageFrame.exemptMapIdsFromDeletion.satisfies(mapView.getId())) {
                             Scheduler.runTask(ImageFrame.plugin, () -> itemFrame.setItem(new ItemStack(Material.MAP, itemStack.getAmount()), false), itemFrame);
+                        } else {
+                            ImageMapCacheControlScheduler.markViewerStateChanged(mapView);
                         }
                     }
                 }
@@ -20,13 +20,13 @@
 
 package com.loohp.imageframe.media;
 
+import com.google.common.collect.Iterators;
 import com.loohp.imageframe.ImageFrame;
 import com.loohp.imageframe.utils.GifReader;
 import com.loohp.imageframe.utils.HTTPRequestUtils;
 import net.kyori.adventure.key.Key;
 
 import java.util.Iterator;
-import java.util.List;
 
 public class GifReaderMediaLoader implements MediaLoader {
 
@@ -44,7 +44,7 @@ public class GifReaderMediaLoader implements MediaLoader {
 
     @Override
     public Iterator<MediaFrame> tryLoad(String url) throws Exception {
-        List<GifReader.ImageFrame> frames = GifReader.readGif(HTTPRequestUtils.getInputStream(url), ImageFrame.maxImageFileSize).get();
-        return frames.stream().map(f -> MediaFrame.animatedFrame(f.getImage(), f.getDelay())).iterator();
+        Iterator<GifReader.ImageFrame> frames = GifReader.streamGif(HTTPRequestUtils.getInputStream(url), ImageFrame.maxImageFileSize);
+        return Iterators.transform(frames, f -> MediaFrame.animatedFrame(f.getImage(), f.getDelay()));
     }
 }
@@ -22,6 +22,7 @@ package com.loohp.imageframe.metrics;
 
 import com.loohp.imageframe.ImageFrame;
 import com.loohp.imageframe.objectholders.ImageMap;
+import com.loohp.imageframe.objectholders.ImageMapCacheBudgetManager;
 import com.loohp.imageframe.utils.PlayerUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
@@ -39,7 +40,7 @@ public class Charts {
         metrics.addCustomChart(new Metrics.SingleLineChart("total_images_created", new Callable<Integer>() {
             @Override
             public Integer call() {
-                return ImageFrame.imageMapManager.getMaps().size();
+                return ImageFrame.imageMapManager.getMapCount();
             }
         }));
 
@@ -123,6 +124,30 @@ public class Charts {
             }
         }));
 
+        metrics.addCustomChart(new Metrics.SingleLineChart("color_cache_hits_in_last_interval", new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                long value = ImageMapCacheBudgetManager.getInstance().getHits().getAndSet(0);
+                return value > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) value;
+            }
+        }));
+
+        metrics.addCustomChart(new Metrics.SingleLineChart("color_cache_misses_in_last_interval", new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                long value = ImageMapCacheBudgetManager.getInstance().getMisses().getAndSet(0);
+                return value > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) value;
+            }
+        }));
+
+        metrics.addCustomChart(new Metrics.SingleLineChart("color_cache_evictions_in_last_interval", new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                long value = ImageMapCacheBudgetManager.getInstance().getEvictions().getAndSet(0);
+                return value > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) value;
+            }
+        }));
+
         metrics.addCustomChart(new Metrics.SimplePie("storage_type", new Callable<String>() {
             @Override
             public String call() {
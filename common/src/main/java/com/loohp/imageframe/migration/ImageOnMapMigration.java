@@ -116,9 +116,9 @@ public class ImageOnMapMigration implements ExternalPluginMigration {
                             continue;
                         }
                         NonUpdatableStaticImageMap imageMap;
-                        if (ImageFrame.imageMapManager.getFromCreator(owner, name) == null) {
+                        if (!ImageFrame.imageMapManager.hasMapNamed(owner, name)) {
                             imageMap = loader.create(new NonUpdatableImageMapCreateInfo(ImageFrame.imageMapManager, name, images, mapIds, width, height, DitheringType.NEAREST_COLOR, owner)).get();
-                        } else if (ImageFrame.imageMapManager.getFromCreator(owner, iomId) == null) {
+                        } else if (!ImageFrame.imageMapManager.hasMapNamed(owner, iomId)) {
                             imageMap = loader.create(new NonUpdatableImageMapCreateInfo(ImageFrame.imageMapManager, iomId, images, mapIds, width, height, DitheringType.NEAREST_COLOR, owner)).get();
                         } else {
                             imageMap = loader.create(new NonUpdatableImageMapCreateInfo(ImageFrame.imageMapManager, "ImageOnMap-" + iomId, images, mapIds, width, height, DitheringType.NEAREST_COLOR, owner)).get();
@@ -26,10 +26,18 @@ import java.lang.reflect.InvocationTargetException;
 
 public class NMS {
 
-    private static NMSWrapper instance;
+    private static volatile NMSWrapper instance;
+
+    public static NMSWrapper getInstance() {
+        NMSWrapper nmsWrapper = instance;
+        if (nmsWrapper != null) {
+            return nmsWrapper;
+        }
+        return createInstance();
+    }
 
     @SuppressWarnings("unchecked")
-    public synchronized static NMSWrapper getInstance() {
+    private synchronized static NMSWrapper createInstance() {
         if (instance != null) {
             return instance;
         }
@@ -21,6 +21,7 @@
 package com.loohp.imageframe.objectholders;
 
 import com.loohp.imageframe.ImageFrame;
+import com.loohp.imageframe.api.events.ImageMapAddedEvent;
 import com.loohp.imageframe.api.events.ImageMapUpdatedEvent;
 import com.loohp.imageframe.hooks.viaversion.ViaHook;
 import com.loohp.imageframe.nms.NMS;
@@ -31,6 +32,7 @@ import com.loohp.platformscheduler.Scheduler;
 import com.loohp.platformscheduler.platform.folia.FoliaScheduler;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
+import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.entity.Entity;
@@ -45,7 +47,9 @@ import org.bukkit.event.player.PlayerInteractEntityEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
 import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.MapMeta;
 import org.bukkit.map.MapView;
@@ -68,12 +72,28 @@ import java.util.concurrent.TimeoutException;
 
 public class AnimatedFakeMapManager implements Listener, Runnable {
 
+    /**
+     * Interval in ticks in which the tracking players of an item frame are refreshed even if its animation did not change
+     */
+    public static final int REFRESH_INTERVAL = 20;
+
     private final Map<UUID, TrackedItemFrameData> itemFrames;
+    private final Map<Integer, Map<UUID, ItemFrame>> unresolvedItemFrames;
     private final Map<Player, Set<Integer>> knownMapIds;
     private final Map<Player, Set<Integer>> pendingKnownMapIds;
-
-    public AnimatedFakeMapManager() {
+    private final boolean trackingEvents;
+    private long currentTick;
+
+    /**
+     * @param trackingEvents whether {@link #handleTrack(Player, Entity)} and {@link #handleUntrack(Player, Entity)}
+     *                       are called by the server's entity tracking events, otherwise every tracking player
+     *                       is sent the fake map item again whenever the item frame is refreshed
+     */
+    public AnimatedFakeMapManager(boolean trackingEvents) {
+        this.trackingEvents = trackingEvents;
         this.itemFrames = new ConcurrentHashMap<>();
+        this.unresolvedItemFrames = new ConcurrentHashMap<>();
+        this.currentTick = 0;
         this.knownMapIds = new ConcurrentHashMap<>();
         this.pendingKnownMapIds = new ConcurrentHashMap<>();
         Scheduler.runTaskTimerAsynchronously(ImageFrame.plugin, this, 0, 1);
@@ -92,11 +112,11 @@ public class AnimatedFakeMapManager implements Listener, Runnable {
         }
     }
 
-    private Map<UUID, CompletableFuture<ItemFrameInfo>> collectItemFramesInfo(boolean async) {
+    private Map<UUID, CompletableFuture<ItemFrameInfo>> collectItemFramesInfo(List<Map.Entry<UUID, TrackedItemFrameData>> changedItemFrames, boolean async) {
         boolean isFolia = Scheduler.getPlatform() instanceof FoliaScheduler;
         // Pre-allocate with known size to avoid resizing
-        Map<UUID, CompletableFuture<ItemFrameInfo>> futures = new HashMap<>(itemFrames.size());
-        for (Map.Entry<UUID, TrackedItemFrameData> entry : itemFrames.entrySet()) {
+        Map<UUID, CompletableFuture<ItemFrameInfo>> futures = new HashMap<>(changedItemFrames.size());
+        for (Map.Entry<UUID, TrackedItemFrameData> entry : changedItemFrames) {
             UUID uuid = entry.getKey();
             ItemFrame itemFrame = entry.getValue().getItemFrame();
             CompletableFuture<ItemFrameInfo> future = new CompletableFuture<>();
@@ -114,7 +134,7 @@ public class AnimatedFakeMapManager implements Listener, Runnable {
                         } else {
                             trackedPlayers = NMS.getInstance().getEntityTrackers(itemFrame);
                         }
-                        future.complete(new ItemFrameInfo(itemFrame.getEntityId(), trackedPlayers, itemFrame.getItem()));
+                        future.complete(new ItemFrameInfo(itemFrame.getEntityId(), trackedPlayers, itemFrame.getItem(), itemFrame.getLocation()));
                     } else {
                         future.complete(null);
                     }
@@ -133,7 +153,14 @@ public class AnimatedFakeMapManager implements Listener, Runnable {
     }
 
     public void run() {
-        Map<UUID, CompletableFuture<ItemFrameInfo>> entityTrackers = collectItemFramesInfo(!ImageFrame.handleAnimatedMapsOnMainThread);
+        long tick = currentTick++;
+        List<Map.Entry<UUID, TrackedItemFrameData>> changedItemFrames = new ArrayList<>();
+        for (Map.Entry<UUID, TrackedItemFrameData> entry : itemFrames.entrySet()) {
+            if (entry.getValue().pollChanged(tick)) {
+                changedItemFrames.add(entry);
+            }
+        }
+        Map<UUID, CompletableFuture<ItemFrameInfo>> entityTrackers = collectItemFramesInfo(changedItemFrames, !ImageFrame.handleAnimatedMapsOnMainThread);
         // Pre-allocate with expected capacity to reduce resizing
         int onlinePlayerCount = Bukkit.getOnlinePlayers().size();
         Map<Player, List<FakeItemUtils.ItemFrameUpdateData>> updateData = new HashMap<>(onlinePlayerCount);
@@ -164,46 +191,48 @@ public class AnimatedFakeMapManager implements Listener, Runnable {
             MapView mapView = MapUtils.getItemMapView(itemStack);
 
             if (mapView == null) {
-                data.setAnimationData(AnimationData.EMPTY);
+                itemFrames.remove(uuid, data);
                 continue;
             }
 
             if (animationData.isEmpty() || !animationData.getMapView().equals(mapView)) {
                 ImageMap map = ImageFrame.imageMapManager.getFromMapView(mapView);
                 if (map == null || !map.requiresAnimationService()) {
-                    if (!animationData.isEmpty()) {
-                        data.setAnimationData(AnimationData.EMPTY);
+                    itemFrames.remove(uuid, data);
+                    if (map == null) {
+                        trackUnresolved(mapView, data.getItemFrame());
                     }
                     continue;
                 }
                 data.setAnimationData(animationData = new AnimationData(map, mapView, map.getMapViews().indexOf(mapView)));
-            } else if (!animationData.isEmpty()) {
-                if (!animationData.getImageMap().isValid()) {
-                    for (Player player : players) {
-                        FakeItemUtils.sendFakeItemChange(player, entityId, itemStack);
-                    }
-                    data.setAnimationData(AnimationData.EMPTY);
-                    continue;
+            } else if (!animationData.getImageMap().isValid()) {
+                for (Player player : players) {
+                    FakeItemUtils.sendFakeItemChange(player, entityId, itemStack);
                 }
+                itemFrames.remove(uuid, data);
+                continue;
             }
             ImageMap imageMap = animationData.getImageMap();
 
             if (!imageMap.requiresAnimationService()) {
-                data.setAnimationData(AnimationData.EMPTY);
+                itemFrames.remove(uuid, data);
                 continue;
             }
             int index = animationData.getIndex();
             int currentPosition = imageMap.getCurrentPositionInSequenceWithOffset();
-            int mapId = imageMap.getAnimationFakeMapId(currentPosition, index, imageMap.isAnimationPaused());
+            int mapId = imageMap.getAnimationFakeMapId(currentPosition, index, true);
             if (mapId < 0) {
                 continue;
             }
+            Map<Player, Integer> lastSentMapIds = data.getLastSentMapIds();
+            lastSentMapIds.keySet().retainAll(players);
             Set<Player> requiresSending = new HashSet<>();
             Set<Player> needReset = new HashSet<>();
             for (Iterator<Player> itr = players.iterator(); itr.hasNext();) {
                 Player player = itr.next();
                 MapMarkerEditManager.MapMarkerEditData edit = ImageFrame.mapMarkerEditManager.getActiveEditing(player);
                 if (edit != null && Objects.equals(edit.getImageMap(), imageMap)) {
+                    lastSentMapIds.remove(player);
                     needReset.add(player);
                     itr.remove();
                     continue;
@@ -222,13 +251,16 @@ public class AnimatedFakeMapManager implements Listener, Runnable {
                 }
             }
             if (!requiresSending.isEmpty()) {
-                imageMap.sendAnimationFakeMaps(requiresSending, (p, i, r) -> {
+                imageMap.sendAnimationFakeMaps(requiresSending, frameInfo.getLocation(), (p, i, r) -> {
                     Set<Integer> pendingKnownIds = pendingKnownMapIds.get(p);
                     if (pendingKnownIds != null && pendingKnownIds.remove(i) && r) {
                         Set<Integer> knownIds = knownMapIds.get(p);
                         if (knownIds != null) {
                             knownIds.add(i);
                         }
+                        if (pendingKnownIds.isEmpty()) {
+                            data.markChanged();
+                        }
                     }
                 });
             }
@@ -236,8 +268,17 @@ public class AnimatedFakeMapManager implements Listener, Runnable {
                 FakeItemUtils.ItemFrameUpdateData itemFrameUpdateData = new FakeItemUtils.ItemFrameUpdateData(entityId, itemStack, mapView.getId(), mapView, currentPosition);
                 needReset.forEach(p -> updateData.computeIfAbsent(p, k -> new ArrayList<>()).add(itemFrameUpdateData));
             }
-            FakeItemUtils.ItemFrameUpdateData itemFrameUpdateData = new FakeItemUtils.ItemFrameUpdateData(entityId, getMapItem(mapId), mapView.getId(), mapView, currentPosition);
-            players.forEach(p -> updateData.computeIfAbsent(p, k -> new ArrayList<>()).add(itemFrameUpdateData));
+            boolean resendAll = !trackingEvents && data.isRefreshDue();
+            FakeItemUtils.ItemFrameUpdateData itemFrameUpdateData = null;
+            for (Player player : players) {
+                Integer lastSentMapId = lastSentMapIds.put(player, mapId);
+                if (resendAll || lastSentMapId == null || lastSentMapId != mapId) {
+                    if (itemFrameUpdateData == null) {
+                        itemFrameUpdateData = new FakeItemUtils.ItemFrameUpdateData(entityId, getMapItem(mapId), mapView.getId(), mapView, currentPosition);
+                    }
+                    updateData.computeIfAbsent(player, k -> new ArrayList<>()).add(itemFrameUpdateData);
+                }
+            }
         }
         Map<Player, List<Runnable>> sendingTasks = new HashMap<>(onlinePlayerCount);
         for (Map.Entry<Player, List<FakeItemUtils.ItemFrameUpdateData>> entry : updateData.entrySet()) {
@@ -261,16 +302,17 @@ public class AnimatedFakeMapManager implements Listener, Runnable {
                 ItemStack offhand = player.getEquipment().getItemInOffHand();
                 MapView mainHandView = MapUtils.getItemMapView(mainhand);
                 MapView offhandView = MapUtils.getItemMapView(offhand);
+                ImageFrame.rateLimitedPacketSendingManager.retainLastQueuedColors(player, mainHandView == null ? -1 : mainHandView.getId(), offhandView == null ? -1 : offhandView.getId());
                 if (mainHandView != null) {
                     ImageMap mainHandMap = ImageFrame.imageMapManager.getFromMapView(mainHandView);
                     if (mainHandMap != null && mainHandMap.requiresAnimationService()) {
-                        sendingTasks.computeIfAbsent(player, k -> new ArrayList<>()).add(() -> mainHandMap.send(player));
+                        sendingTasks.computeIfAbsent(player, k -> new ArrayList<>()).add(() -> mainHandMap.send(player, MapPacketPriority.HELD_ITEM));
                     }
                 }
                 if (offhandView != null && !offhandView.equals(mainHandView)) {
                     ImageMap offHandMap = ImageFrame.imageMapManager.getFromMapView(offhandView);
                     if (offHandMap != null && offHandMap.requiresAnimationService()) {
-                        sendingTasks.computeIfAbsent(player, k -> new ArrayList<>()).add(() -> offHandMap.send(player));
+                        sendingTasks.computeIfAbsent(player, k -> new ArrayList<>()).add(() -> offHandMap.send(player, MapPacketPriority.HELD_ITEM));
                     }
                 }
             }
@@ -293,28 +335,95 @@ public class AnimatedFakeMapManager implements Listener, Runnable {
         return itemStack;
     }
 
-    private void handleEntity(Entity entity) {
+    /**
+     * Starts or stops tracking the item frame depending on whether it currently shows an animated image map.
+     * Only item frames showing animated image maps are processed every tick, this has to be called whenever
+     * the item of an item frame is changed without an event.
+     */
+    public void handleEntity(Entity entity) {
         if (!(entity instanceof ItemFrame)) {
             return;
         }
         ItemFrame itemFrame = (ItemFrame) entity;
         UUID uuid = itemFrame.getUniqueId();
-        if (itemFrames.containsKey(uuid)) {
-            return;
-        }
         MapView mapView = MapUtils.getItemMapView(itemFrame.getItem());
         if (mapView == null) {
-            itemFrames.put(uuid, new TrackedItemFrameData(itemFrame, AnimationData.EMPTY));
+            itemFrames.remove(uuid);
             return;
         }
         ImageMap map = ImageFrame.imageMapManager.getFromMapView(mapView);
         if (map == null || !map.requiresAnimationService()) {
-            itemFrames.put(uuid, new TrackedItemFrameData(itemFrame, AnimationData.EMPTY));
+            itemFrames.remove(uuid);
+            if (map == null) {
+                trackUnresolved(mapView, itemFrame);
+            }
+            return;
+        }
+        TrackedItemFrameData data = itemFrames.get(uuid);
+        if (data != null && data.getItemFrame() == itemFrame && mapView.equals(data.getAnimationData().getMapView())) {
+            data.markChanged();
             return;
         }
         itemFrames.put(uuid, new TrackedItemFrameData(itemFrame, new AnimationData(map, mapView, map.getMapViews().indexOf(mapView))));
     }
 
+    /**
+     * Called when the player starts tracking the entity, the player is sent the fake map item
+     * of the item frame on the next tick as the spawned entity shows the real map.
+     */
+    public void handleTrack(Player player, Entity entity) {
+        TrackedItemFrameData data = itemFrames.get(entity.getUniqueId());
+        if (data != null) {
+            data.getLastSentMapIds().remove(player);
+            data.markChanged();
+        }
+    }
+
+    public void handleUntrack(Player player, Entity entity) {
+        TrackedItemFrameData data = itemFrames.get(entity.getUniqueId());
+        if (data != null) {
+            data.getLastSentMapIds().remove(player);
+        }
+    }
+
+    /**
+     * Remembers the item frame to be handled again once the image map of the map is added, only if such an
+     * image map can still be added without being created, so that item frames showing other maps are not kept.
+     */
+    private void trackUnresolved(MapView mapView, ItemFrame itemFrame) {
+        int mapId = mapView.getId();
+        if (!ImageFrame.imageMapManager.isMapIdPending(mapId)) {
+            return;
+        }
+        unresolvedItemFrames.computeIfAbsent(mapId, k -> new ConcurrentHashMap<>()).put(itemFrame.getUniqueId(), itemFrame);
+        // Loading might have finished and rechecked the unresolved item frames in the meantime
+        if (!ImageFrame.imageMapManager.isMapIdPending(mapId)) {
+            untrackUnresolved(itemFrame);
+        }
+    }
+
+    private void untrackUnresolved(Entity entity) {
+        UUID uuid = entity.getUniqueId();
+        for (Map.Entry<Integer, Map<UUID, ItemFrame>> entry : unresolvedItemFrames.entrySet()) {
+            Map<UUID, ItemFrame> unresolved = entry.getValue();
+            if (unresolved.remove(uuid) != null && unresolved.isEmpty()) {
+                unresolvedItemFrames.remove(entry.getKey(), unresolved);
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        if (unresolvedItemFrames.isEmpty()) {
+            return;
+        }
+        for (Entity entity : event.getChunk().getEntities()) {
+            if (entity instanceof ItemFrame) {
+                untrackUnresolved(entity);
+            }
+        }
+    }
+
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onChunkLoad(ChunkLoadEvent event) {
         Chunk chunk = event.getChunk();
@@ -332,7 +441,44 @@ public class AnimatedFakeMapManager implements Listener, Runnable {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerInteract(PlayerInteractEntityEvent event) {
-        handleEntity(event.getRightClicked());
+        Entity entity = event.getRightClicked();
+        if (entity instanceof ItemFrame) {
+            Scheduler.runTaskLater(ImageFrame.plugin, () -> handleEntity(entity), 1, entity);
+        }
+    }
+
+    @EventHandler
+    public void onImageMapAdded(ImageMapAddedEvent event) {
+        ImageMap imageMap = event.getImageMap();
+        if (!imageMap.requiresAnimationService()) {
+            return;
+        }
+        for (MapView mapView : imageMap.getMapViews()) {
+            recheckUnresolved(unresolvedItemFrames.remove(mapView.getId()));
+        }
+    }
+
+    /**
+     * Handles again every item frame showing a map which was not resolved to an image map when it was handled,
+     * such as those seen while image maps are still being loaded.
+     */
+    public void recheckUnresolvedItemFrames() {
+        for (Integer mapId : unresolvedItemFrames.keySet()) {
+            recheckUnresolved(unresolvedItemFrames.remove(mapId));
+        }
+    }
+
+    private void recheckUnresolved(Map<UUID, ItemFrame> unresolved) {
+        if (unresolved == null) {
+            return;
+        }
+        for (ItemFrame itemFrame : unresolved.values()) {
+            Scheduler.executeOrScheduleSync(ImageFrame.plugin, () -> {
+                if (itemFrame.isValid()) {
+                    handleEntity(itemFrame);
+                }
+            }, itemFrame);
+        }
     }
 
     @EventHandler
@@ -361,6 +507,8 @@ public class AnimatedFakeMapManager implements Listener, Runnable {
             Scheduler.runTaskAsynchronously(ImageFrame.plugin, () -> {
                 TrackedItemFrameData data = itemFrames.remove(uuid);
                 if (data != null) {
+                    data.getLastSentMapIds().clear();
+                    data.markChanged();
                     itemFrames.put(uuid, data);
                 }
             });
@@ -395,22 +543,83 @@ public class AnimatedFakeMapManager implements Listener, Runnable {
             }
         }
 
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onEntityUnload(EntitiesUnloadEvent event) {
+            if (unresolvedItemFrames.isEmpty()) {
+                return;
+            }
+            for (Entity entity : event.getEntities()) {
+                if (entity instanceof ItemFrame) {
+                    untrackUnresolved(entity);
+                }
+            }
+        }
+
     }
 
     public static class TrackedItemFrameData {
 
         private final ItemFrame itemFrame;
-        private AnimationData animationData;
+        private final int refreshOffset;
+        private final Map<Player, Integer> lastSentMapIds;
+        private volatile AnimationData animationData;
+        private volatile boolean changed;
+        private int lastMapId;
+        private boolean refreshDue;
 
         public TrackedItemFrameData(ItemFrame itemFrame, AnimationData animationData) {
             this.itemFrame = itemFrame;
+            this.refreshOffset = Math.floorMod(itemFrame.getUniqueId().hashCode(), REFRESH_INTERVAL);
+            this.lastSentMapIds = new ConcurrentHashMap<>();
             this.animationData = animationData;
+            this.changed = true;
+            this.lastMapId = -1;
+            this.refreshDue = false;
+        }
+
+        public void markChanged() {
+            changed = true;
+        }
+
+        /**
+         * @return whether the item frame has to be processed on this tick, because it was marked as changed,
+         * the fake map shown by its animation changed, or its tracking players are due to be refreshed
+         */
+        private boolean pollChanged(long tick) {
+            refreshDue = (tick + refreshOffset) % REFRESH_INTERVAL == 0;
+            boolean process = changed || refreshDue;
+            AnimationData animationData = this.animationData;
+            ImageMap imageMap = animationData.getImageMap();
+            if (imageMap == null || !imageMap.isValid() || !imageMap.requiresAnimationService()) {
+                process = true;
+            } else {
+                int mapId = imageMap.getAnimationFakeMapId(imageMap.getCurrentPositionInSequenceWithOffset(), animationData.getIndex(), true);
+                if (mapId >= 0 && mapId != lastMapId) {
+                    lastMapId = mapId;
+                    process = true;
+                }
+            }
+            if (process) {
+                changed = false;
+            }
+            return process;
         }
 
         public ItemFrame getItemFrame() {
             return itemFrame;
         }
 
+        public boolean isRefreshDue() {
+            return refreshDue;
+        }
+
+        /**
+         * @return the fake map id last shown in the item frame to each tracking player
+         */
+        public Map<Player, Integer> getLastSentMapIds() {
+            return lastSentMapIds;
+        }
+
         public AnimationData getAnimationData() {
             return animationData;
         }
@@ -457,11 +666,13 @@ public class AnimatedFakeMapManager implements Listener, Runnable {
         private final int entityId;
         private final Set<Player> trackedPlayers;
         private final ItemStack itemStack;
+        private final Location location;
 
-        public ItemFrameInfo(int entityId, Set<Player> trackedPlayers, ItemStack itemStack) {
+        public ItemFrameInfo(int entityId, Set<Player> trackedPlayers, ItemStack itemStack, Location location) {
             this.entityId = entityId;
             this.trackedPlayers = trackedPlayers;
             this.itemStack = itemStack;
+            this.location = location;
         }
 
         public int getEntityId() {
@@ -475,6 +686,10 @@ public class AnimatedFakeMapManager implements Listener, Runnable {
         public ItemStack getItemStack() {
             return itemStack;
         }
+
+        public Location getLocation() {
+            return location;
+        }
     }
 
 }
@@ -0,0 +1,53 @@
+/*
+ * This file is part of ImageFrame.
+ *
+ * Copyright (C) 2025. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2025. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.imageframe.objectholders;
+
+import com.loohp.imageframe.ImageFrame;
+import com.loohp.imageframe.utils.MapUtils;
+
+/**
+ * Deletes the blank map data file of a map id seen on an item before its map view is loaded, when
+ * {@link ImageFrame#tryDeleteBlankMapFiles} is enabled. Each map id is checked only the first time it is seen.
+ */
+public class BlankMapFileChecker {
+
+    private final ConcurrentIntObjectMap<Boolean> checkedMapIds;
+
+    public BlankMapFileChecker() {
+        this.checkedMapIds = new ConcurrentIntObjectMap<>();
+    }
+
+    /**
+     * Must be called before the map view of the map id is loaded.
+     */
+    public void check(int mapId) {
+        if (!ImageFrame.tryDeleteBlankMapFiles || checkedMapIds.containsKey(mapId)) {
+            return;
+        }
+        try {
+            MapUtils.tryDeleteBlankDataFile(MapUtils.getMainWorld(), mapId);
+        } catch (Throwable e) {
+            e.printStackTrace();
+        }
+        checkedMapIds.put(mapId, Boolean.TRUE);
+    }
+
+}
@@ -336,8 +336,12 @@ public class CombinedMapItemHandler implements Listener, AutoCloseable {
             }
             List<ItemFrame> itemFrames = selection.getItemFrames();
             if (player == null || itemFrames.stream().allMatch(each -> PlayerUtils.isDamageAllowed(player, each))) {
-                itemFrames.forEach(each -> each.setItem(null, false));
+                itemFrames.forEach(each -> {
+                    each.setItem(null, false);
+                    ImageFrame.animatedFakeMapManager.handleEntity(each);
+                });
                 itemFrame.setItem(getCombinedMap(imageMap), false);
+                ImageFrame.animatedFakeMapManager.handleEntity(itemFrame);
             } else {
                 CommandSenderUtils.sendMessage(player, Component.translatable(TranslationKey.ITEM_FRAME_OCCUPIED).color(NamedTextColor.RED));
             }
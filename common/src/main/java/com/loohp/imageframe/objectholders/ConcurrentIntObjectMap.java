@@ -0,0 +1,175 @@
+/*
+ * This file is part of ImageFrame.
+ *
+ * Copyright (C) 2025. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2025. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.imageframe.objectholders;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An open addressing hash map from primitive int keys to values, for indexes which are looked up
+ * far more often than they are changed.
+ * <p>
+ * Lookups take no lock and allocate nothing, changes are serialized on the map. Like
+ * {@link java.util.concurrent.ConcurrentHashMap}, a lookup reflects the changes which completed
+ * before it started. Values must not be null.
+ */
+public class ConcurrentIntObjectMap<V> {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final Entry<?> REMOVED = new Entry<>(0, null);
+
+    private volatile AtomicReferenceArray<Entry<V>> table;
+    private int size;
+    private int used;
+
+    public ConcurrentIntObjectMap() {
+        this.table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+        this.size = 0;
+        this.used = 0;
+    }
+
+    private static int index(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    public V get(int key) {
+        AtomicReferenceArray<Entry<V>> table = this.table;
+        int mask = table.length() - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            Entry<V> entry = table.get(i);
+            if (entry == null) {
+                return null;
+            }
+            if (entry != REMOVED && entry.key == key) {
+                return entry.value;
+            }
+        }
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the previous value of the key, or null if there was none
+     */
+    public synchronized V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value cannot be null");
+        }
+        AtomicReferenceArray<Entry<V>> table = this.table;
+        int mask = table.length() - 1;
+        int free = -1;
+        int i = index(key, mask);
+        for (Entry<V> entry; (entry = table.get(i)) != null; i = (i + 1) & mask) {
+            if (entry == REMOVED) {
+                if (free < 0) {
+                    free = i;
+                }
+            } else if (entry.key == key) {
+                table.set(i, new Entry<>(key, value));
+                return entry.value;
+            }
+        }
+        if (free >= 0) {
+            table.set(free, new Entry<>(key, value));
+        } else {
+            table.set(i, new Entry<>(key, value));
+            used++;
+        }
+        size++;
+        if (used * 2 > table.length()) {
+            rehash();
+        }
+        return null;
+    }
+
+    /**
+     * Removes the key only if it is currently mapped to the given value.
+     *
+     * @return whether the key was removed
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized boolean remove(int key, V value) {
+        AtomicReferenceArray<Entry<V>> table = this.table;
+        int mask = table.length() - 1;
+        for (int i = index(key, mask); ; i = (i + 1) & mask) {
+            Entry<V> entry = table.get(i);
+            if (entry == null) {
+                return false;
+            }
+            if (entry != REMOVED && entry.key == key) {
+                if (entry.value != value) {
+                    return false;
+                }
+                table.set(i, (Entry<V>) REMOVED);
+                size--;
+                return true;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        this.table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+        this.size = 0;
+        this.used = 0;
+    }
+
+    private void rehash() {
+        // Called when lock is already held, lookups keep using the old table until the new one is published
+        AtomicReferenceArray<Entry<V>> table = this.table;
+        int capacity = INITIAL_CAPACITY;
+        while (size * 4 > capacity) {
+            capacity <<= 1;
+        }
+        AtomicReferenceArray<Entry<V>> newTable = new AtomicReferenceArray<>(capacity);
+        int mask = capacity - 1;
+        for (int u = 0; u < table.length(); u++) {
+            Entry<V> entry = table.get(u);
+            if (entry != null && entry != REMOVED) {
+                int i = index(entry.key, mask);
+                while (newTable.get(i) != null) {
+                    i = (i + 1) & mask;
+                }
+                newTable.set(i, entry);
+            }
+        }
+        this.used = size;
+        this.table = newTable;
+    }
+
+    private static class Entry<V> {
+
+        private final int key;
+        private final V value;
+
+        private Entry(int key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+    }
+
+}
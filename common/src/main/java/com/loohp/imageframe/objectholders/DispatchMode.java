@@ -0,0 +1,67 @@
+/*
+ * This file is part of ImageFrame.
+ *
+ * Copyright (C) 2025. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2025. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.imageframe.objectholders;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public enum DispatchMode {
+
+    /**
+     * A fixed pool of platform threads.
+     */
+    POOL,
+    /**
+     * A new virtual thread for every task, falls back to {@link #POOL} before Java 21.
+     */
+    VIRTUAL_THREADS,
+    /**
+     * Directly on the network event loop of each player's connection where supported,
+     * falls back to {@link #POOL} otherwise.
+     */
+    EVENT_LOOP;
+
+    public static DispatchMode fromName(String name) {
+        for (DispatchMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        return POOL;
+    }
+
+    /**
+     * @param threads the number of threads of the pool, 0 or less for the number of available processors
+     */
+    public ExecutorService createExecutorService(String nameFormat, int threads) {
+        if (this == VIRTUAL_THREADS) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException ignored) {
+            }
+        }
+        int poolSize = threads <= 0 ? Runtime.getRuntime().availableProcessors() : threads;
+        return Executors.newFixedThreadPool(poolSize, new ThreadFactoryBuilder().setNameFormat(nameFormat).build());
+    }
+
+}
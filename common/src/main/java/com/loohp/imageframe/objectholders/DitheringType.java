@@ -21,7 +21,7 @@
 package com.loohp.imageframe.objectholders;
 
 import com.loohp.imageframe.utils.dithering.FloydSteinbergDithering;
-import org.bukkit.map.MapPalette;
+import com.loohp.imageframe.utils.dithering.NearestColorMatching;
 
 import java.awt.image.BufferedImage;
 import java.util.Collections;
@@ -33,9 +33,9 @@ public class DitheringType {
 
     private static final Map<String, DitheringType> REGISTERED_TYPES = new LinkedHashMap<>();
 
-    @SuppressWarnings("removal")
-    public static final DitheringType NEAREST_COLOR = register(new DitheringType("nearest-color", image -> MapPalette.imageToBytes(image)));
+    public static final DitheringType NEAREST_COLOR = register(new DitheringType("nearest-color", image -> NearestColorMatching.nearestColor(image)));
     public static final DitheringType FLOYD_STEINBERG = register(new DitheringType("floyd-steinberg", image -> FloydSteinbergDithering.floydSteinbergDithering(image)));
+    public static final DitheringType FLOYD_STEINBERG_PARALLEL = register(new DitheringType("floyd-steinberg-parallel", image -> FloydSteinbergDithering.parallelFloydSteinbergDithering(image)));
 
     public static DitheringType register(DitheringType ditheringType) {
         REGISTERED_TYPES.put(ditheringType.getName(), ditheringType);
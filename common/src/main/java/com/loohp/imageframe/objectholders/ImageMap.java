@@ -32,6 +32,7 @@ import com.loohp.imageframe.utils.StringUtils;
 import com.loohp.platformscheduler.Scheduler;
 import net.kyori.adventure.key.Key;
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.Rotation;
 import org.bukkit.entity.ItemFrame;
@@ -129,7 +130,9 @@ public abstract class ImageMap {
 
     public boolean applyUpdate(JsonObject json) {
         this.name = json.has("name") ? json.get("name").getAsString() : "Unnamed";
+        UUID previousCreator = creator;
         this.creator = UUID.fromString(json.get("creator").getAsString());
+        manager.updateCreator(this, previousCreator);
         DitheringType previousDitheringType = ditheringType;
         this.ditheringType = DitheringType.fromName(json.has("ditheringType") ? json.get("ditheringType").getAsString() : null);
 
@@ -183,6 +186,13 @@ public abstract class ImageMap {
 
     protected abstract void unloadColorCache();
 
+    /**
+     * @return the number of bytes currently held by the color cache of this image map
+     */
+    public long getColorCacheSize() {
+        return 0;
+    }
+
     public BufferedImage getOriginalImage(int mapId) {
         return null;
     }
@@ -265,6 +275,16 @@ public abstract class ImageMap {
         throw new UnsupportedOperationException("this map does not require animation");
     }
 
+    /**
+     * Queues the fake maps of all frames as background packets, frames of item frames closer to
+     * the player are sent first.
+     *
+     * @param location the location of the item frame, or null if unknown
+     */
+    public void sendAnimationFakeMaps(Collection<? extends Player> players, Location location, MapPacketSentCallback completionCallback) {
+        sendAnimationFakeMaps(players, completionCallback);
+    }
+
     public Set<Integer> getFakeMapIds() {
         throw new UnsupportedOperationException("this map does not require animation");
     }
@@ -295,8 +315,16 @@ public abstract class ImageMap {
     }
 
     public void send(Collection<? extends Player> players) {
+        send(players, MapPacketPriority.FRAME);
+    }
+
+    public void send(Player player, MapPacketPriority priority) {
+        send(Collections.singleton(player), priority);
+    }
+
+    public void send(Collection<? extends Player> players, MapPacketPriority priority) {
         for (MapView mapView : mapViews) {
-            MapUtils.sendImageMap(mapView, players);
+            MapUtils.sendImageMap(mapView.getId(), mapView, -1, players, null, priority, null);
         }
     }
 
@@ -421,6 +449,7 @@ public abstract class ImageMap {
                     if (prePlaceCheck.test(frame, item)) {
                         frame.setItem(item, false);
                         frame.setRotation(rotation);
+                        ImageFrame.animatedFakeMapManager.handleEntity(frame);
                         return;
                     }
                 }
@@ -442,7 +471,9 @@ public abstract class ImageMap {
     }
 
     public void changeCreator(UUID creator) throws Exception {
+        UUID previousCreator = this.creator;
         this.creator = creator;
+        manager.updateCreator(this, previousCreator);
         this.accessControl.setPermissionWithoutSave(creator, null);
         save();
     }
@@ -504,14 +535,32 @@ public abstract class ImageMap {
             this.index = index;
         }
 
+        public ImageMap getImageMap() {
+            return imageMap;
+        }
+
         @Override
         public void render(MapView mapView, MapCanvas canvas, Player player) {
             MutablePair<byte[], Collection<MapCursor>> renderData = renderMap(mapView, 0, player);
             manager.callRenderEventListener(manager, imageMap, mapView, player, renderData);
             byte[] colors = renderData.getFirst();
             if (colors != null) {
+                boolean changed = false;
                 for (int i = 0; i < colors.length; i++) {
-                    canvas.setPixel(i % MapUtils.MAP_WIDTH, i / MapUtils.MAP_WIDTH, colors[i]);
+                    int x = i % MapUtils.MAP_WIDTH;
+                    int y = i / MapUtils.MAP_WIDTH;
+                    if (canvas.getPixel(x, y) != colors[i]) {
+                        canvas.setPixel(x, y, colors[i]);
+                        changed = true;
+                    }
+                }
+                // The server sends the changed canvas on its own, partial packets can no longer assume what the player sees
+                if (changed && ImageFrame.rateLimitedPacketSendingManager != null) {
+                    if (isContextual()) {
+                        ImageFrame.rateLimitedPacketSendingManager.invalidateLastQueuedColors(player, mapView.getId());
+                    } else {
+                        ImageFrame.rateLimitedPacketSendingManager.invalidateLastQueuedColors(mapView.getId());
+                    }
                 }
             }
             canvas.setCursors(MapUtils.toMapCursorCollection(renderData.getSecond()));
@@ -535,6 +584,15 @@ public abstract class ImageMap {
 
         public abstract MutablePair<byte[], Collection<MapCursor>> renderMap(MapView mapView, Player player);
 
+        /**
+         * @param currentTick the tick to render, or -1 for the current tick
+         * @return the frame rendered for the tick, which is passed back as the tick when rendering a packet
+         * that is shared between players, or -1 if the rendered map differs between players
+         */
+        public int getSharedPacketFrame(MapView mapView, int currentTick) {
+            return -1;
+        }
+
     }
 
 }
@@ -0,0 +1,96 @@
+/*
+ * This file is part of ImageFrame.
+ *
+ * Copyright (C) 2025. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2025. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.loohp.imageframe.objectholders;
+
+import com.loohp.imageframe.ImageFrame;
+import com.loohp.platformscheduler.Scheduler;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads the color cache when an image map is being viewed and leaves unloading to
+ * the {@link ImageMapCacheBudgetManager}, which evicts the least recently viewed image
+ * maps once the global memory budget is exceeded.
+ */
+public class ImageMapBudgetedCacheControlTask implements ImageMapViewerTrackedCacheControlTask {
+
+    private final ImageMap imageMap;
+    private final ImageMapCacheControlScheduler scheduler;
+    private final ImageMapCacheBudgetManager budgetManager;
+
+    private final AtomicBoolean closed;
+    private final AtomicBoolean loading;
+
+    public ImageMapBudgetedCacheControlTask(ImageMap imageMap) {
+        this.imageMap = imageMap;
+        this.scheduler = ImageMapCacheControlScheduler.getInstance();
+        this.budgetManager = ImageMapCacheBudgetManager.getInstance();
+        this.closed = new AtomicBoolean(false);
+        this.loading = new AtomicBoolean(false);
+        this.scheduler.register(this);
+    }
+
+    @Override
+    public ImageMap getImageMap() {
+        return imageMap;
+    }
+
+    @Override
+    public void loadCacheIfManual() {
+
+    }
+
+    @Override
+    public void updateViewerState(boolean hasViewers) {
+        if (closed.get() || !hasViewers) {
+            return;
+        }
+        if (imageMap.hasColorCached()) {
+            budgetManager.access(this);
+        } else if (loading.compareAndSet(false, true)) {
+            Scheduler.runTaskAsynchronously(ImageFrame.plugin, () -> {
+                try {
+                    if (!closed.get()) {
+                        budgetManager.access(this);
+                    }
+                } finally {
+                    loading.set(false);
+                }
+            });
+        }
+    }
+
+    @Override
+    public boolean requiresContinuousChecks() {
+        return loading.get() || imageMap.hasColorCached();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    @Override
+    public void close() {
+        closed.set(true);
+        scheduler.unregister(this);
+        budgetManager.remove(this);
+    }
+}
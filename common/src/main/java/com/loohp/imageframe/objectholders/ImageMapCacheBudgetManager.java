@@ -0,0 +1,164 @@
+/*
+ * This file is part of ImageFrame.
+ *
+ * Copyright (C) 2025. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2025. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.loohp.imageframe.objectholders;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the color caches loaded by {@link ImageMapBudgetedCacheControlTask} across
+ * all image maps in least recently used order, and unloads the least recently viewed image
+ * maps whenever the total size of the loaded caches exceeds the configured budget.
+ */
+public class ImageMapCacheBudgetManager {
+
+    private static final ImageMapCacheBudgetManager INSTANCE = new ImageMapCacheBudgetManager();
+
+    public static ImageMapCacheBudgetManager getInstance() {
+        return INSTANCE;
+    }
+
+    private final LinkedHashMap<ImageMapBudgetedCacheControlTask, Long> loadedCaches;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+    private volatile long budget;
+    private long usedBytes;
+
+    private ImageMapCacheBudgetManager() {
+        this.loadedCaches = new LinkedHashMap<>(16, 0.75F, true);
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+        this.budget = Long.MAX_VALUE;
+        this.usedBytes = 0;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public void setBudget(long budget) {
+        this.budget = budget;
+        List<ImageMap> evicted;
+        synchronized (this) {
+            evicted = evict(null);
+        }
+        unload(evicted);
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int getLoadedCount() {
+        return loadedCaches.size();
+    }
+
+    public AtomicLong getHits() {
+        return hits;
+    }
+
+    public AtomicLong getMisses() {
+        return misses;
+    }
+
+    public AtomicLong getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Marks the color cache of the image map of the task as being used, loading it if it is not loaded.
+     */
+    public void access(ImageMapBudgetedCacheControlTask task) {
+        ImageMap imageMap = task.getImageMap();
+        List<ImageMap> evicted = Collections.emptyList();
+        boolean hit;
+        synchronized (this) {
+            hit = imageMap.hasColorCached() && loadedCaches.containsKey(task);
+            if (hit) {
+                hits.incrementAndGet();
+                long size = imageMap.getColorCacheSize();
+                long previousSize = loadedCaches.put(task, size);
+                if (size != previousSize) {
+                    usedBytes += size - previousSize;
+                    evicted = evict(task);
+                }
+            }
+        }
+        if (hit) {
+            unload(evicted);
+            return;
+        }
+        misses.incrementAndGet();
+        if (!imageMap.hasColorCached()) {
+            imageMap.loadColorCache();
+        }
+        synchronized (this) {
+            if (task.isClosed()) {
+                return;
+            }
+            long size = imageMap.getColorCacheSize();
+            Long previousSize = loadedCaches.put(task, size);
+            usedBytes += size - (previousSize == null ? 0 : previousSize);
+            evicted = evict(task);
+        }
+        unload(evicted);
+    }
+
+    public synchronized void remove(ImageMapBudgetedCacheControlTask task) {
+        Long size = loadedCaches.remove(task);
+        if (size != null) {
+            usedBytes -= size;
+        }
+    }
+
+    /**
+     * Must be called while holding the lock, the returned image maps are to be unloaded after releasing it.
+     */
+    private List<ImageMap> evict(ImageMapBudgetedCacheControlTask keep) {
+        List<ImageMap> evicted = new ArrayList<>();
+        Iterator<Map.Entry<ImageMapBudgetedCacheControlTask, Long>> itr = loadedCaches.entrySet().iterator();
+        while (usedBytes > budget && itr.hasNext()) {
+            Map.Entry<ImageMapBudgetedCacheControlTask, Long> entry = itr.next();
+            ImageMapBudgetedCacheControlTask task = entry.getKey();
+            if (task == keep) {
+                continue;
+            }
+            itr.remove();
+            usedBytes -= entry.getValue();
+            evicted.add(task.getImageMap());
+            evictions.incrementAndGet();
+        }
+        return evicted;
+    }
+
+    private void unload(List<ImageMap> evicted) {
+        for (ImageMap imageMap : evicted) {
+            imageMap.unloadColorCache();
+        }
+    }
+
+}
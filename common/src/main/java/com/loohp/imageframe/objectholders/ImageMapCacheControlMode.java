@@ -31,6 +31,8 @@ public class ImageMapCacheControlMode<T extends ImageMapCacheControlTask> {
 
     public static final ImageMapCacheControlMode<ImageMapDynamicCacheControlTask> DYNAMIC = register(new ImageMapCacheControlMode<>("DYNAMIC", ImageMapDynamicCacheControlTask.class, ImageMapDynamicCacheControlTask::new));
     public static final ImageMapCacheControlMode<ImageMapManualPersistentCacheControlTask> MANUAL_PERSISTENT = register(new ImageMapCacheControlMode<>("MANUAL_PERSISTENT", ImageMapManualPersistentCacheControlTask.class, ImageMapManualPersistentCacheControlTask::new));
+    public static final ImageMapCacheControlMode<ImageMapOffHeapCacheControlTask> OFF_HEAP = register(new ImageMapCacheControlMode<>("OFF_HEAP", ImageMapOffHeapCacheControlTask.class, ImageMapOffHeapCacheControlTask::new));
+    public static final ImageMapCacheControlMode<ImageMapBudgetedCacheControlTask> BUDGETED_LRU = register(new ImageMapCacheControlMode<>("BUDGETED_LRU", ImageMapBudgetedCacheControlTask.class, ImageMapBudgetedCacheControlTask::new));
 
     public static <T extends ImageMapCacheControlTask> ImageMapCacheControlMode<T> register(ImageMapCacheControlMode<T> cacheControlTasks) {
         MODES.put(cacheControlTasks.getIdentifier(), cacheControlTasks);
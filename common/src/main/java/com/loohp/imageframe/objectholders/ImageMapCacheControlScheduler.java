@@ -0,0 +1,146 @@
+/*
+ * This file is part of ImageFrame.
+ *
+ * Copyright (C) 2025. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2025. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.loohp.imageframe.objectholders;
+
+import com.loohp.imageframe.ImageFrame;
+import com.loohp.platformscheduler.Scheduler;
+import org.bukkit.map.MapView;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Checks the viewer state of all image maps using {@link ImageMapViewerTrackedCacheControlTask}
+ * in one batched pass every {@link #CHECK_INTERVAL} ticks.
+ * <p>
+ * Each pass only checks image maps that were marked by events that could change who views them
+ * (held item changes, chunks and entities loading, entities becoming tracked), image maps whose
+ * tasks require continuous checks, and a fixed size slice of all other image maps in round robin
+ * order as a fallback. The cost of an idle pass therefore does not grow with the number of image maps.
+ */
+public class ImageMapCacheControlScheduler implements Runnable {
+
+    public static final int CHECK_INTERVAL = 5;
+    public static final int SWEEP_BATCH_SIZE = 64;
+
+    private static volatile ImageMapCacheControlScheduler instance;
+
+    public static synchronized ImageMapCacheControlScheduler getInstance() {
+        if (instance == null) {
+            instance = new ImageMapCacheControlScheduler();
+            Scheduler.runTaskLaterAsynchronously(ImageFrame.plugin, instance, CHECK_INTERVAL);
+        }
+        return instance;
+    }
+
+    private final Set<ImageMapViewerTrackedCacheControlTask> activeTasks;
+    private final Deque<ImageMapViewerTrackedCacheControlTask> sweepQueue;
+    private final Set<ImageMapViewerTrackedCacheControlTask> markedTasks;
+
+    private ImageMapCacheControlScheduler() {
+        this.activeTasks = ConcurrentHashMap.newKeySet();
+        this.sweepQueue = new ConcurrentLinkedDeque<>();
+        this.markedTasks = ConcurrentHashMap.newKeySet();
+    }
+
+    public void register(ImageMapViewerTrackedCacheControlTask task) {
+        sweepQueue.add(task);
+        markedTasks.add(task);
+    }
+
+    public void unregister(ImageMapViewerTrackedCacheControlTask task) {
+        activeTasks.remove(task);
+        markedTasks.remove(task);
+        sweepQueue.remove(task);
+    }
+
+    /**
+     * Marks the image map to have its viewer state checked in the next pass,
+     * does nothing if no image map uses the scheduler.
+     */
+    public static void markViewerStateChanged(ImageMap imageMap) {
+        ImageMapCacheControlScheduler scheduler = instance;
+        if (scheduler == null || imageMap == null) {
+            return;
+        }
+        ImageMapCacheControlTask task = imageMap.cacheControlTask;
+        if (task instanceof ImageMapViewerTrackedCacheControlTask && !task.isClosed()) {
+            scheduler.markedTasks.add((ImageMapViewerTrackedCacheControlTask) task);
+        }
+    }
+
+    /**
+     * Marks the image map of the map view, if there is one, to have its viewer state checked in the next pass,
+     * does nothing if no image map uses the scheduler.
+     */
+    public static void markViewerStateChanged(MapView mapView) {
+        if (instance == null || mapView == null || ImageFrame.imageMapManager == null) {
+            return;
+        }
+        markViewerStateChanged(ImageFrame.imageMapManager.getFromMapView(mapView));
+    }
+
+    @Override
+    public void run() {
+        try {
+            Set<ImageMapViewerTrackedCacheControlTask> tasks = new LinkedHashSet<>(activeTasks);
+            Iterator<ImageMapViewerTrackedCacheControlTask> itr = markedTasks.iterator();
+            while (itr.hasNext()) {
+                tasks.add(itr.next());
+                itr.remove();
+            }
+            List<ImageMapViewerTrackedCacheControlTask> sweep = new ArrayList<>(SWEEP_BATCH_SIZE);
+            for (int i = 0; i < SWEEP_BATCH_SIZE; i++) {
+                ImageMapViewerTrackedCacheControlTask task = sweepQueue.poll();
+                if (task == null) {
+                    break;
+                }
+                sweep.add(task);
+                tasks.add(task);
+            }
+            sweepQueue.addAll(sweep);
+            for (ImageMapViewerTrackedCacheControlTask task : tasks) {
+                if (task.isClosed()) {
+                    unregister(task);
+                    continue;
+                }
+                try {
+                    task.updateViewerState(task.getImageMap().hasViewers());
+                    if (task.requiresContinuousChecks()) {
+                        activeTasks.add(task);
+                    } else {
+                        activeTasks.remove(task);
+                    }
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            Scheduler.runTaskLaterAsynchronously(ImageFrame.plugin, this, CHECK_INTERVAL);
+        }
+    }
+
+}
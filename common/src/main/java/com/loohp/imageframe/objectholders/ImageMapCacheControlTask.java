@@ -28,6 +28,13 @@ public interface ImageMapCacheControlTask extends AutoCloseable {
 
     boolean isClosed();
 
+    /**
+     * @return whether image maps should hold their color cache outside the java heap where supported
+     */
+    default boolean isOffHeap() {
+        return false;
+    }
+
     @Override
     void close();
 
@@ -21,29 +21,30 @@
 package com.loohp.imageframe.objectholders;
 
 import com.loohp.imageframe.ImageFrame;
-import com.loohp.platformscheduler.ScheduledTask;
 import com.loohp.platformscheduler.Scheduler;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
 
-public class ImageMapDynamicCacheControlTask implements ImageMapCacheControlTask, Runnable {
+public class ImageMapDynamicCacheControlTask implements ImageMapViewerTrackedCacheControlTask {
     
     private final ImageMap imageMap;
+    private final ImageMapCacheControlScheduler scheduler;
 
     private final AtomicBoolean locked;
     private final AtomicBoolean closed;
+    private final AtomicBoolean loading;
 
-    private final AtomicReference<ScheduledTask> task;
     private final AtomicInteger noViewerCounts;
 
     public ImageMapDynamicCacheControlTask(ImageMap imageMap) {
         this.imageMap = imageMap;
+        this.scheduler = ImageMapCacheControlScheduler.getInstance();
         this.noViewerCounts = new AtomicInteger(0);
         this.locked = new AtomicBoolean(false);
         this.closed = new AtomicBoolean(false);
-        this.task = new AtomicReference<>(Scheduler.runTaskLaterAsynchronously(ImageFrame.plugin, this, 5));
+        this.loading = new AtomicBoolean(false);
+        this.scheduler.register(this);
     }
 
     @Override
@@ -65,23 +66,33 @@ public class ImageMapDynamicCacheControlTask implements ImageMapCacheControlTask
     }
 
     @Override
-    public void run() {
-        if (closed.get()) {
+    public void updateViewerState(boolean hasViewers) {
+        if (closed.get() || locked.get()) {
             return;
         }
-        if (!locked.get()) {
-            if (imageMap.hasViewers()) {
-                noViewerCounts.set(0);
-                if (!imageMap.hasColorCached()) {
-                    imageMap.loadColorCache();
-                }
-            } else {
-                if (noViewerCounts.getAndIncrement() > 200 && imageMap.hasColorCached()) {
-                    imageMap.unloadColorCache();
-                }
+        if (hasViewers) {
+            noViewerCounts.set(0);
+            if (!imageMap.hasColorCached() && loading.compareAndSet(false, true)) {
+                Scheduler.runTaskAsynchronously(ImageFrame.plugin, () -> {
+                    try {
+                        if (!closed.get()) {
+                            imageMap.loadColorCache();
+                        }
+                    } finally {
+                        loading.set(false);
+                    }
+                });
+            }
+        } else {
+            if (noViewerCounts.getAndIncrement() > 200 && imageMap.hasColorCached()) {
+                imageMap.unloadColorCache();
             }
         }
-        this.task.set(Scheduler.runTaskLaterAsynchronously(ImageFrame.plugin, this, 5));
+    }
+
+    @Override
+    public boolean requiresContinuousChecks() {
+        return loading.get() || imageMap.hasColorCached();
     }
 
     @Override
@@ -92,11 +103,6 @@ public class ImageMapDynamicCacheControlTask implements ImageMapCacheControlTask
     @Override
     public void close() {
         closed.set(true);
-        task.updateAndGet(t -> {
-            if (t != null) {
-                t.cancel();
-            }
-            return t;
-        });
+        scheduler.unregister(this);
     }
 }
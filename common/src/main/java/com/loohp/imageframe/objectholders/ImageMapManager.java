@@ -21,8 +21,11 @@
 package com.loohp.imageframe.objectholders;
 
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.loohp.imageframe.ImageFrame;
 import com.loohp.imageframe.api.events.ImageMapAddedEvent;
@@ -30,6 +33,7 @@ import com.loohp.imageframe.api.events.ImageMapDeletedEvent;
 import com.loohp.imageframe.api.events.ImageMapUpdatedEvent;
 import com.loohp.imageframe.storage.ImageFrameStorage;
 import com.loohp.imageframe.utils.MapUtils;
+import com.loohp.imageframe.utils.ThrowingSupplier;
 import com.loohp.platformscheduler.Scheduler;
 import net.md_5.bungee.api.ChatColor;
 import org.bukkit.Bukkit;
@@ -39,20 +43,28 @@ import org.bukkit.map.MapCursor;
 import org.bukkit.map.MapRenderer;
 import org.bukkit.map.MapView;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
@@ -68,13 +80,21 @@ public class ImageMapManager implements AutoCloseable {
     }
 
     private static final long SHUTDOWN_LOCK_TIMEOUT_SECONDS = 5;
+    private static final long LOADING_PROGRESS_INTERVAL = 5000;
 
     private final ImageFrameStorage imageFrameStorage;
     private final Map<Integer, ImageMap> maps;
-    private final Map<MapView, ImageMap> mapsByView;
+    private final ConcurrentIntObjectMap<ImageMap> mapsByMapId;
+    private final ConcurrentIntObjectMap<ImageMap> mapsByFakeMapId;
+    private final Map<UUID, Set<ImageMap>> mapsByCreator;
+    private final Map<Integer, PendingImageMap> pendingMaps;
+    private final ConcurrentIntObjectMap<PendingImageMap> pendingMapsByMapId;
+    private final Map<UUID, Set<PendingImageMap>> pendingMapsByCreator;
+    private final ExecutorService materializingService;
     private final List<ImageMapRenderEventListener> renderEventListeners;
     private final Set<Integer> deletedMapIds;
     private final ReentrantLock managerLock;
+    private volatile boolean loading;
 
     // Animation tick caching to avoid repeated System.currentTimeMillis() calls
     private volatile long cachedAnimationTick;
@@ -82,11 +102,18 @@ public class ImageMapManager implements AutoCloseable {
 
     public ImageMapManager(ImageFrameStorage imageFrameStorage) {
         this.maps = new ConcurrentHashMap<>();
-        this.mapsByView = new ConcurrentHashMap<>();
+        this.mapsByMapId = new ConcurrentIntObjectMap<>();
+        this.mapsByFakeMapId = new ConcurrentIntObjectMap<>();
+        this.mapsByCreator = new ConcurrentHashMap<>();
+        this.pendingMaps = new ConcurrentHashMap<>();
+        this.pendingMapsByMapId = new ConcurrentIntObjectMap<>();
+        this.pendingMapsByCreator = new ConcurrentHashMap<>();
+        this.materializingService = Executors.newFixedThreadPool(ImageFrame.mapLoadingConcurrency <= 0 ? Runtime.getRuntime().availableProcessors() : ImageFrame.mapLoadingConcurrency, new ThreadFactoryBuilder().setNameFormat("ImageFrame Map Materializing Thread #%d").build());
         this.imageFrameStorage = imageFrameStorage;
         this.renderEventListeners = new CopyOnWriteArrayList<>();
         this.deletedMapIds = ConcurrentHashMap.newKeySet();
         this.managerLock = new ReentrantLock();
+        this.loading = true;
         this.cachedAnimationTick = 0;
         this.cachedAnimationTickTime = 0;
     }
@@ -107,6 +134,7 @@ public class ImageMapManager implements AutoCloseable {
 
     @Override
     public void close() {
+        materializingService.shutdown();
         // Use tryLock with timeout to avoid blocking the main thread during shutdown
         // The deletedMapIds set is thread-safe (ConcurrentHashMap.newKeySet()), so we can
         // safely save even without the lock - we just want to ensure consistency if possible
@@ -141,6 +169,10 @@ public class ImageMapManager implements AutoCloseable {
         renderEventListeners.remove(listener);
     }
 
+    public List<ImageMapRenderEventListener> getRenderEventListeners() {
+        return Collections.unmodifiableList(renderEventListeners);
+    }
+
     protected void callRenderEventListener(ImageMapManager manager, ImageMap imageMap, MapView map, Player player, MutablePair<byte[], Collection<MapCursor>> renderData) {
         renderEventListeners.forEach(each -> each.accept(manager, imageMap, map, player, renderData));
     }
@@ -148,77 +180,344 @@ public class ImageMapManager implements AutoCloseable {
     public void addMap(ImageMap map) throws Exception {
         managerLock.lock();
         try {
-            if (map.getManager() != this) {
-                throw new IllegalArgumentException("ImageMap's manager is not set to this");
+            addMapInternal(map);
+            saveDeletedMapsInternal();
+        } finally {
+            managerLock.unlock();
+        }
+    }
+
+    private void addMapInternal(ImageMap map) throws Exception {
+        // Called when lock is already held
+        if (map.getManager() != this) {
+            throw new IllegalArgumentException("ImageMap's manager is not set to this");
+        }
+        if (hasMapNamed(map.getCreator(), map.getName())) {
+            throw new IllegalArgumentException("Duplicated map name for this creator");
+        }
+        int originalImageIndex = map.getImageIndex();
+        imageFrameStorage.prepareImageIndex(map, i -> map.imageIndex = i);
+        maps.put(map.getImageIndex(), map);
+        index(map);
+        for (MapView mapView : map.getMapViews()) {
+            deletedMapIds.remove(mapView.getId());
+        }
+        try {
+            map.save();
+            Bukkit.getPluginManager().callEvent(new ImageMapAddedEvent(map));
+        } catch (Throwable e) {
+            maps.remove(originalImageIndex);
+            unindex(map);
+            throw e;
+        }
+    }
+
+    private void index(ImageMap map) {
+        for (int mapId : map.getMapIds()) {
+            mapsByMapId.put(mapId, map);
+        }
+        Set<Integer> fakeMapIds = map.getFakeMapIds();
+        if (fakeMapIds != null) {
+            for (int fakeMapId : fakeMapIds) {
+                mapsByFakeMapId.put(fakeMapId, map);
             }
-            if (getFromCreator(map.getCreator(), map.getName()) != null) {
-                throw new IllegalArgumentException("Duplicated map name for this creator");
+        }
+        mapsByCreator.computeIfAbsent(map.getCreator(), k -> ConcurrentHashMap.newKeySet()).add(map);
+    }
+
+    private void unindex(ImageMap map) {
+        for (int mapId : map.getMapIds()) {
+            mapsByMapId.remove(mapId, map);
+        }
+        Set<Integer> fakeMapIds = map.getFakeMapIds();
+        if (fakeMapIds != null) {
+            for (int fakeMapId : fakeMapIds) {
+                mapsByFakeMapId.remove(fakeMapId, map);
             }
-            int originalImageIndex = map.getImageIndex();
-            imageFrameStorage.prepareImageIndex(map, i -> map.imageIndex = i);
-            maps.put(map.getImageIndex(), map);
-            for (MapView mapView : map.getMapViews()) {
-                mapsByView.put(mapView, map);
-                deletedMapIds.remove(mapView.getId());
+        }
+        removeFromCreator(mapsByCreator, map.getCreator(), map);
+    }
+
+    private static <T> void removeFromCreator(Map<UUID, Set<T>> byCreator, UUID creator, T value) {
+        byCreator.computeIfPresent(creator, (k, v) -> {
+            v.remove(value);
+            return v.isEmpty() ? null : v;
+        });
+    }
+
+    private boolean isRegistered(ImageMap map) {
+        return maps.get(map.getImageIndex()) == map;
+    }
+
+    /**
+     * Called by the image map when it assigns itself new fake map ids.
+     */
+    protected void updateFakeMapIds(ImageMap map, Set<Integer> previousFakeMapIds) {
+        if (previousFakeMapIds != null) {
+            for (int fakeMapId : previousFakeMapIds) {
+                mapsByFakeMapId.remove(fakeMapId, map);
             }
-            try {
-                map.save();
-                Bukkit.getPluginManager().callEvent(new ImageMapAddedEvent(map));
-            } catch (Throwable e) {
-                maps.remove(originalImageIndex);
-                for (MapView mapView : map.getMapViews()) {
-                    mapsByView.remove(mapView);
-                }
-                throw e;
+        }
+        Set<Integer> fakeMapIds = map.getFakeMapIds();
+        if (fakeMapIds != null && isRegistered(map)) {
+            for (int fakeMapId : fakeMapIds) {
+                mapsByFakeMapId.put(fakeMapId, map);
             }
-            saveDeletedMapsInternal();
-        } finally {
-            managerLock.unlock();
+        }
+    }
+
+    /**
+     * Called by the image map when its creator is changed.
+     */
+    protected void updateCreator(ImageMap map, UUID previousCreator) {
+        if (previousCreator == null || previousCreator.equals(map.getCreator())) {
+            return;
+        }
+        removeFromCreator(mapsByCreator, previousCreator, map);
+        if (isRegistered(map)) {
+            mapsByCreator.computeIfAbsent(map.getCreator(), k -> ConcurrentHashMap.newKeySet()).add(map);
         }
     }
 
     public boolean hasMap(int imageIndex) {
-        return maps.containsKey(imageIndex);
+        return maps.containsKey(imageIndex) || pendingMaps.containsKey(imageIndex);
     }
 
+    /**
+     * @return the image maps which are materialized, image maps registered lazily are only
+     * included once they are looked up, see {@link #getAllMaps()}
+     */
     public Collection<ImageMap> getMaps() {
         return Collections.unmodifiableCollection(maps.values());
     }
 
+    /**
+     * Materializes every image map which is not yet, this can take a long time if image maps are loaded lazily.
+     * On the primary thread this does not wait, image maps not materialized yet are not included.
+     */
+    public Collection<ImageMap> getAllMaps() {
+        awaitMaterialized(pendingMaps.values(), each -> true);
+        return getMaps();
+    }
+
+    public int getMapCount() {
+        return maps.size() + pendingMaps.size();
+    }
+
+    /**
+     * @return the number of image maps created by the creator, including those not materialized yet
+     */
+    public int getMapCount(UUID creator) {
+        return mapsByCreator.getOrDefault(creator, Collections.emptySet()).size() + pendingMapsByCreator.getOrDefault(creator, Collections.emptySet()).size();
+    }
+
+    /**
+     * @return whether the map id belongs to an image map, including those not materialized yet
+     */
+    public boolean isImageMapId(int mapId) {
+        return mapsByMapId.containsKey(mapId) || pendingMapsByMapId.containsKey(mapId);
+    }
+
+    /**
+     * @return the largest map id used by any image map, including those not materialized yet, or -1 if there is none
+     */
+    public int getMaxMapId() {
+        int max = maps.values().stream().flatMap(i -> i.getMapIds().stream()).mapToInt(i -> i).max().orElse(-1);
+        for (PendingImageMap pending : pendingMaps.values()) {
+            for (int mapId : pending.getMapIds()) {
+                max = Math.max(max, mapId);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return whether an image map using the map id may still be added without being created, that is while
+     * image maps are being loaded, or if the image map using it is registered lazily and not constructed yet
+     */
+    public boolean isMapIdPending(int mapId) {
+        return loading || pendingMapsByMapId.containsKey(mapId);
+    }
+
+    /**
+     * Never waits, if the image map is registered lazily and not materialized yet, it starts being
+     * materialized in the background and null is returned, an {@link ImageMapAddedEvent} is fired once it is ready.
+     * Use {@link #isImageMapId(int)} to check whether a map id belongs to an image map.
+     */
     public ImageMap getFromMapId(int id) {
-        MapView mapView = Bukkit.getMap(id);
-        if (mapView == null) {
-            return null;
+        ImageMap imageMap = mapsByMapId.get(id);
+        if (imageMap == null) {
+            PendingImageMap pending = pendingMapsByMapId.get(id);
+            if (pending != null) {
+                materializeAsync(pending);
+            }
         }
-        return getFromMapView(Bukkit.getMap(id));
+        return imageMap;
     }
 
+    /**
+     * Waits for the image map to be materialized if it is registered lazily, except on the primary thread,
+     * where null is returned until it is ready.
+     */
     public ImageMap getFromImageId(int imageId) {
-        return maps.get(imageId);
+        ImageMap imageMap = maps.get(imageId);
+        if (imageMap == null) {
+            PendingImageMap pending = pendingMaps.get(imageId);
+            if (pending != null) {
+                CompletableFuture<ImageMap> future = materializeAsync(pending);
+                return Scheduler.isPrimaryThread() ? future.getNow(null) : future.join();
+            }
+        }
+        return imageMap;
     }
 
     public ImageMap getFromMapView(MapView mapView) {
-        return mapsByView.get(mapView);
+        return getFromMapId(mapView.getId());
     }
 
+    /**
+     * Waits for image maps registered lazily to be materialized, except on the primary thread,
+     * where only those already materialized are included.
+     */
     public Set<ImageMap> getFromCreator(UUID uuid) {
-        return maps.values().stream().filter(each -> each.getCreator().equals(uuid)).collect(Collectors.toSet());
+        materializeIf(uuid, each -> true);
+        return new HashSet<>(mapsByCreator.getOrDefault(uuid, Collections.emptySet()));
     }
 
     public List<ImageMap> getFromCreator(UUID uuid, Comparator<ImageMap> order) {
-        return maps.values().stream().filter(each -> each.getCreator().equals(uuid)).sorted(order).collect(Collectors.toList());
+        materializeIf(uuid, each -> true);
+        return mapsByCreator.getOrDefault(uuid, Collections.emptySet()).stream().sorted(order).collect(Collectors.toList());
     }
 
     public ImageMap getFromCreator(UUID uuid, String name) {
-        return maps.values().stream().filter(each -> each.getCreator().equals(uuid) && each.getName().equalsIgnoreCase(name)).findFirst().orElse(null);
+        materializeIf(uuid, each -> each.getName().equalsIgnoreCase(name));
+        for (ImageMap imageMap : mapsByCreator.getOrDefault(uuid, Collections.emptySet())) {
+            if (imageMap.getName().equalsIgnoreCase(name)) {
+                return imageMap;
+            }
+        }
+        return null;
     }
 
     public Set<UUID> getCreators() {
-        return maps.values().stream().map(each -> each.getCreator()).collect(Collectors.toSet());
+        Set<UUID> creators = new HashSet<>(mapsByCreator.keySet());
+        creators.addAll(pendingMapsByCreator.keySet());
+        return creators;
+    }
+
+    /**
+     * @return whether the creator has an image map with the name, including those not materialized yet
+     */
+    public boolean hasMapNamed(UUID uuid, String name) {
+        for (ImageMap imageMap : mapsByCreator.getOrDefault(uuid, Collections.emptySet())) {
+            if (imageMap.getName().equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        for (PendingImageMap pending : pendingMapsByCreator.getOrDefault(uuid, Collections.emptySet())) {
+            if (pending.getName().equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void materializeIf(UUID creator, Predicate<PendingImageMap> predicate) {
+        Set<PendingImageMap> pendingFromCreator = pendingMapsByCreator.get(creator);
+        if (pendingFromCreator != null) {
+            awaitMaterialized(pendingFromCreator, predicate);
+        }
+    }
+
+    private void awaitMaterialized(Collection<PendingImageMap> pendingMaps, Predicate<PendingImageMap> predicate) {
+        List<CompletableFuture<ImageMap>> futures = new ArrayList<>();
+        for (PendingImageMap pending : pendingMaps) {
+            if (predicate.test(pending)) {
+                futures.add(materializeAsync(pending));
+            }
+        }
+        // Image maps are set up on the primary thread while being materialized, so it must never wait for them
+        if (!Scheduler.isPrimaryThread()) {
+            for (CompletableFuture<ImageMap> future : futures) {
+                future.join();
+            }
+        }
+    }
+
+    /**
+     * Starts constructing the image map from storage in the background if it is not already.
+     *
+     * @return a future of the image map, which completes with null if it is unable to be loaded
+     */
+    private CompletableFuture<ImageMap> materializeAsync(PendingImageMap pending) {
+        synchronized (pending) {
+            if (pending.materializing == null) {
+                CompletableFuture<ImageMap> future = new CompletableFuture<>();
+                pending.materializing = future;
+                try {
+                    materializingService.execute(() -> future.complete(materialize(pending)));
+                } catch (RejectedExecutionException e) {
+                    future.complete(null);
+                }
+            }
+            return pending.materializing;
+        }
+    }
+
+    private ImageMap materialize(PendingImageMap pending) {
+        int imageIndex = pending.getImageIndex();
+        try {
+            JsonObject json = imageFrameStorage.loadImageMapData(imageIndex);
+            ImageMap imageMap = ImageMapLoaders.load(this, json).get();
+            managerLock.lock();
+            try {
+                if (pendingMaps.get(imageIndex) == pending) {
+                    removePending(pending);
+                    addMapInternal(imageMap);
+                    return imageMap;
+                }
+            } finally {
+                managerLock.unlock();
+            }
+            // The image map was deleted or updated while it was being materialized
+            imageMap.markInvalid();
+            imageMap.stop();
+            return maps.get(imageIndex);
+        } catch (Throwable e) {
+            Bukkit.getConsoleSender().sendMessage(ChatColor.RED + "[ImageFrame] Unable to load ImageMap data for index " + imageIndex);
+            e.printStackTrace();
+            managerLock.lock();
+            try {
+                removePending(pending);
+            } finally {
+                managerLock.unlock();
+            }
+            return null;
+        }
+    }
+
+    private void addPending(PendingImageMap pending) {
+        // Called when lock is already held
+        pendingMaps.put(pending.getImageIndex(), pending);
+        for (int mapId : pending.getMapIds()) {
+            pendingMapsByMapId.put(mapId, pending);
+            deletedMapIds.remove(mapId);
+        }
+        pendingMapsByCreator.computeIfAbsent(pending.getCreator(), k -> ConcurrentHashMap.newKeySet()).add(pending);
+    }
+
+    private void removePending(PendingImageMap pending) {
+        if (pendingMaps.remove(pending.getImageIndex(), pending)) {
+            for (int mapId : pending.getMapIds()) {
+                pendingMapsByMapId.remove(mapId, pending);
+            }
+            removeFromCreator(pendingMapsByCreator, pending.getCreator(), pending);
+        }
     }
 
     public ImageMap getFromFakeMapId(int fakeMapId) {
-        return maps.values().stream().filter(each -> each.requiresAnimationService() && each.getFakeMapIds().contains(fakeMapId)).findFirst().orElse(null);
+        ImageMap imageMap = mapsByFakeMapId.get(fakeMapId);
+        return imageMap != null && imageMap.requiresAnimationService() ? imageMap : null;
     }
 
     public boolean deleteMap(int imageIndex) {
@@ -226,12 +525,15 @@ public class ImageMapManager implements AutoCloseable {
         try {
             ImageMap imageMap = maps.remove(imageIndex);
             if (imageMap == null) {
-                return false;
+                PendingImageMap pending = pendingMaps.get(imageIndex);
+                if (pending == null) {
+                    return false;
+                }
+                deletePending(pending);
+                return true;
             }
             List<MapView> mapViews = imageMap.getMapViews();
-            for (MapView mapView : mapViews) {
-                mapsByView.remove(mapView);
-            }
+            unindex(imageMap);
             if (imageMap.trackDeletedMaps()) {
                 mapViews.forEach(each -> deletedMapIds.add(each.getId()));
             }
@@ -253,12 +555,43 @@ public class ImageMapManager implements AutoCloseable {
         }
     }
 
+    private void deletePending(PendingImageMap pending) {
+        // Called when lock is already held
+        removePending(pending);
+        int[] mapIds = pending.getMapIds();
+        for (int mapId : mapIds) {
+            deletedMapIds.add(mapId);
+        }
+        imageFrameStorage.deleteMap(pending.getImageIndex());
+        saveDeletedMapsInternal();
+        Scheduler.runTask(ImageFrame.plugin, () -> {
+            for (int mapId : mapIds) {
+                MapView mapView = Bukkit.getMap(mapId);
+                if (mapView != null && mapView.getRenderers().isEmpty()) {
+                    mapView.addRenderer(DeletedMapRenderer.INSTANCE);
+                }
+            }
+        });
+    }
+
     public void updateMap(int imageIndex, boolean exist) {
         managerLock.lock();
         try {
             ImageMap imageMap = maps.get(imageIndex);
+            PendingImageMap pending = pendingMaps.get(imageIndex);
             try {
-                if (imageMap == null) {
+                if (pending != null) {
+                    if (exist) {
+                        // The new data is read when it is materialized, only the indexed metadata has to be refreshed
+                        PendingImageMap updated = PendingImageMap.fromJson(imageFrameStorage.loadImageMapData(imageIndex));
+                        removePending(pending);
+                        if (updated != null) {
+                            addPending(updated);
+                        }
+                    } else {
+                        deletePending(pending);
+                    }
+                } else if (imageMap == null) {
                     if (exist) {
                         JsonObject json = imageFrameStorage.loadImageMapData(imageIndex);
                         Scheduler.runTaskAsynchronously(ImageFrame.plugin, () -> {
@@ -303,27 +636,130 @@ public class ImageMapManager implements AutoCloseable {
     }
 
     public void loadMaps(IFPlayerManager ifPlayerManager) {
+        loadMaps(ifPlayerManager, ImageFrame.mapLoadingConcurrency, ImageFrame.mapLoadingBatchSize, ImageFrame.lazyMapLoading);
+    }
+
+    /**
+     * Loads every image map from storage, up to the given number of image maps are read and constructed
+     * at the same time. Loaded image maps are added in storage order, in batches of up to the given size
+     * under a single lock acquisition.
+     * <p>
+     * If lazy, only the image index, map ids, creator and name of each image map are registered, and the
+     * image map is constructed the first time it is looked up, such as when an item frame showing it is loaded.
+     *
+     * @param concurrency the number of image maps loaded at the same time, 0 or less for the number of available processors
+     */
+    public void loadMaps(IFPlayerManager ifPlayerManager, int concurrency, int batchSize, boolean lazy) {
         managerLock.lock();
         try {
+            loading = true;
             maps.clear();
-            mapsByView.clear();
+            mapsByMapId.clear();
+            mapsByFakeMapId.clear();
+            mapsByCreator.clear();
+            pendingMaps.clear();
+            pendingMapsByMapId.clear();
+            pendingMapsByCreator.clear();
         } finally {
             managerLock.unlock();
         }
-        List<MutablePair<String, Future<? extends ImageMap>>> futures = imageFrameStorage.loadMaps(this, deletedMapIds, ifPlayerManager);
+        List<MutablePair<String, ThrowingSupplier<JsonObject>>> tasks = imageFrameStorage.loadMaps(this, deletedMapIds, ifPlayerManager);
         Scheduler.runTaskAsynchronously(ImageFrame.plugin, () -> {
-            int count = 0;
-            for (MutablePair<String, Future<? extends ImageMap>> pair : futures) {
+            int threads = concurrency <= 0 ? Runtime.getRuntime().availableProcessors() : concurrency;
+            ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("ImageFrame Map Loading Thread #%d").build());
+            try {
+                List<MutablePair<String, Future<LoadedImageMap>>> futures = new ArrayList<>(tasks.size());
+                for (MutablePair<String, ThrowingSupplier<JsonObject>> task : tasks) {
+                    futures.add(new MutablePair<>(task.getFirst(), executor.submit(() -> loadMap(task.getSecond(), lazy))));
+                }
+                long startTime = System.currentTimeMillis();
+                long lastProgress = startTime;
+                int count = 0;
+                int processed = 0;
+                List<MutablePair<String, LoadedImageMap>> batch = new ArrayList<>(Math.max(1, batchSize));
+                for (MutablePair<String, Future<LoadedImageMap>> pair : futures) {
+                    Future<LoadedImageMap> future = pair.getSecond();
+                    // Add what is already loaded instead of waiting for a full batch, so that maps start rendering early
+                    if (!batch.isEmpty() && (batch.size() >= batchSize || !future.isDone())) {
+                        count += addLoadedMaps(batch);
+                        batch.clear();
+                    }
+                    try {
+                        batch.add(new MutablePair<>(pair.getFirst(), future.get()));
+                    } catch (Throwable e) {
+                        Bukkit.getConsoleSender().sendMessage(ChatColor.RED + "[ImageFrame] Unable to load ImageMap data in " + pair.getFirst());
+                        (e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e).printStackTrace();
+                    }
+                    processed++;
+                    long now = System.currentTimeMillis();
+                    if (now - lastProgress >= LOADING_PROGRESS_INTERVAL) {
+                        lastProgress = now;
+                        Bukkit.getConsoleSender().sendMessage(ChatColor.GRAY + "[ImageFrame] Loading ImageMaps... " + processed + "/" + futures.size() + " (" + formatRate(processed, now - startTime) + " ImageMaps/s)");
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    count += addLoadedMaps(batch);
+                }
+                long timeTaken = System.currentTimeMillis() - startTime;
+                Bukkit.getConsoleSender().sendMessage(ChatColor.GREEN + "[ImageFrame] Data loading completed! Loaded " + count + " ImageMaps in " + timeTaken + "ms (" + formatRate(count, timeTaken) + " ImageMaps/s)!");
+            } finally {
+                executor.shutdown();
+                loading = false;
+                if (ImageFrame.animatedFakeMapManager != null) {
+                    ImageFrame.animatedFakeMapManager.recheckUnresolvedItemFrames();
+                }
+            }
+        });
+    }
+
+    private LoadedImageMap loadMap(ThrowingSupplier<JsonObject> task, boolean lazy) throws Exception {
+        try {
+            JsonObject json = task.get();
+            if (lazy) {
+                PendingImageMap pending = PendingImageMap.fromJson(json);
+                if (pending != null) {
+                    return new LoadedImageMap(null, pending);
+                }
+            }
+            return new LoadedImageMap(ImageMapLoaders.load(this, json).get(), null);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new ExecutionException(e);
+        }
+    }
+
+    private static String formatRate(int count, long timeTaken) {
+        return String.format("%.1f", count * 1000.0 / Math.max(1, timeTaken));
+    }
+
+    private int addLoadedMaps(List<MutablePair<String, LoadedImageMap>> loadedMaps) {
+        int count = 0;
+        managerLock.lock();
+        try {
+            for (MutablePair<String, LoadedImageMap> pair : loadedMaps) {
                 try {
-                    addMap(pair.getSecond().get());
+                    LoadedImageMap loaded = pair.getSecond();
+                    if (loaded.getImageMap() == null) {
+                        PendingImageMap pending = loaded.getPending();
+                        if (hasMap(pending.getImageIndex()) || hasMapNamed(pending.getCreator(), pending.getName())) {
+                            throw new IllegalArgumentException("Duplicated image index or map name for this creator");
+                        }
+                        addPending(pending);
+                    } else {
+                        addMapInternal(loaded.getImageMap());
+                    }
                     count++;
                 } catch (Throwable e) {
                     Bukkit.getConsoleSender().sendMessage(ChatColor.RED + "[ImageFrame] Unable to load ImageMap data in " + pair.getFirst());
                     e.printStackTrace();
                 }
             }
-            Bukkit.getConsoleSender().sendMessage(ChatColor.GREEN + "[ImageFrame] Data loading completed! Loaded " + count + " ImageMaps!");
-        });
+            saveDeletedMapsInternal();
+        } finally {
+            managerLock.unlock();
+        }
+        return count;
     }
 
     public void syncMaps() {
@@ -335,7 +771,7 @@ public class ImageMapManager implements AutoCloseable {
         Set<Integer> indexesFromLocal;
         managerLock.lock();
         try {
-            indexesFromLocal = Set.copyOf(maps.keySet());
+            indexesFromLocal = Sets.union(maps.keySet(), pendingMaps.keySet()).immutableCopy();
         } finally {
             managerLock.unlock();
         }
@@ -380,6 +816,86 @@ public class ImageMapManager implements AutoCloseable {
         maps.values().forEach(m -> m.send(players));
     }
 
+    /**
+     * The indexed metadata of an image map which is registered without being constructed yet.
+     */
+    private static class PendingImageMap {
+
+        /**
+         * @return null if the image map cannot be registered lazily, such as when its map views still have to be created
+         */
+        private static PendingImageMap fromJson(JsonObject json) {
+            try {
+                JsonArray mapDataJson = json.get("mapdata").getAsJsonArray();
+                int[] mapIds = new int[mapDataJson.size()];
+                int i = 0;
+                for (JsonElement dataJson : mapDataJson) {
+                    JsonObject jsonObject = dataJson.getAsJsonObject();
+                    if (!jsonObject.has("mapid")) {
+                        return null;
+                    }
+                    mapIds[i++] = jsonObject.get("mapid").getAsInt();
+                }
+                int imageIndex = json.get("index").getAsInt();
+                String name = json.has("name") ? json.get("name").getAsString() : "Unnamed";
+                UUID creator = UUID.fromString(json.get("creator").getAsString());
+                return new PendingImageMap(imageIndex, name, creator, mapIds);
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+        private final int imageIndex;
+        private final String name;
+        private final UUID creator;
+        private final int[] mapIds;
+        private CompletableFuture<ImageMap> materializing;
+
+        private PendingImageMap(int imageIndex, String name, UUID creator, int[] mapIds) {
+            this.imageIndex = imageIndex;
+            this.name = name;
+            this.creator = creator;
+            this.mapIds = mapIds;
+        }
+
+        public int getImageIndex() {
+            return imageIndex;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public UUID getCreator() {
+            return creator;
+        }
+
+        public int[] getMapIds() {
+            return mapIds;
+        }
+
+    }
+
+    private static class LoadedImageMap {
+
+        private final ImageMap imageMap;
+        private final PendingImageMap pending;
+
+        private LoadedImageMap(ImageMap imageMap, PendingImageMap pending) {
+            this.imageMap = imageMap;
+            this.pending = pending;
+        }
+
+        public ImageMap getImageMap() {
+            return imageMap;
+        }
+
+        public PendingImageMap getPending() {
+            return pending;
+        }
+
+    }
+
     public static class DeletedMapRenderer extends MapRenderer {
 
         public static final DeletedMapRenderer INSTANCE = new DeletedMapRenderer();
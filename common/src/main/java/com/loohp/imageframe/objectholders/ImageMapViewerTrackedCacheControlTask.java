@@ -0,0 +1,39 @@
+/*
+ * This file is part of ImageFrame.
+ *
+ * Copyright (C) 2025. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2025. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.loohp.imageframe.objectholders;
+
+/**
+ * A cache control task whose viewer state is checked by the shared {@link ImageMapCacheControlScheduler}
+ * instead of polling on its own.
+ */
+public interface ImageMapViewerTrackedCacheControlTask extends ImageMapCacheControlTask {
+
+    /**
+     * Called by the scheduler with the result of a viewer check of the image map.
+     */
+    void updateViewerState(boolean hasViewers);
+
+    /**
+     * @return whether the viewer state of the image map should be checked on every scheduler pass,
+     * such as when its color cache is loaded and needs to be unloaded once it is no longer viewed
+     */
+    boolean requiresContinuousChecks();
+
+}
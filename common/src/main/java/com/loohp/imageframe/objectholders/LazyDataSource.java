@@ -20,6 +20,8 @@
 
 package com.loohp.imageframe.objectholders;
 
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -28,8 +30,35 @@ public interface LazyDataSource {
 
     <T> T load(Reader<T> reader) throws IOException;
 
+    /**
+     * Loads length bytes starting at offset, sources which are able to seek override this
+     * so that the data before the range is not read.
+     *
+     * @return the bytes, or null if the data does not exist
+     */
+    default byte[] loadRange(long offset, int length) throws IOException {
+        return load(in -> {
+            long skipped = 0;
+            while (skipped < offset) {
+                long n = in.skip(offset - skipped);
+                if (n <= 0) {
+                    if (in.read() < 0) {
+                        throw new EOFException();
+                    }
+                    n = 1;
+                }
+                skipped += n;
+            }
+            byte[] bytes = new byte[length];
+            new DataInputStream(in).readFully(bytes);
+            return bytes;
+        });
+    }
+
     void save(Writer writer) throws IOException;
 
+    void delete() throws IOException;
+
     String getFileName();
 
     LazyDataSource withFileName(String fileName);
@@ -86,6 +86,10 @@ public class MapMarkerEditManager implements Listener, AutoCloseable {
         Bukkit.getPluginManager().registerEvents(this, ImageFrame.plugin);
     }
 
+    public ImageMapRenderEventListener getRenderEventListener() {
+        return renderEventListener;
+    }
+
     @Override
     public void close() {
         ImageFrame.imageMapManager.removeRenderEventListener(renderEventListener);
@@ -150,6 +154,15 @@ public class MapMarkerEditManager implements Listener, AutoCloseable {
         return activeEditing.containsKey(player);
     }
 
+    public boolean isActiveEditing(ImageMap imageMap) {
+        for (MapMarkerEditData data : activeEditing.values()) {
+            if (data.getImageMap().equals(imageMap)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public MapMarkerEditData getActiveEditing(Player player) {
         return activeEditing.get(player);
     }
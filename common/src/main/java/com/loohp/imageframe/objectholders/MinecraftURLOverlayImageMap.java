@@ -108,6 +108,11 @@ public class MinecraftURLOverlayImageMap extends URLStaticImageMap {
             canvas.setCursors(MapUtils.toMapCursorCollection(renderData.getSecond()));
         }
 
+        @Override
+        public int getSharedPacketFrame(MapView mapView, int currentTick) {
+            return -1;
+        }
+
         @SuppressWarnings("unchecked")
         @Override
         public MutablePair<byte[], Collection<MapCursor>> renderMap(MapView mapView, Player player) {
@@ -88,6 +88,21 @@ public class NonUpdatableStaticImageMap extends ImageMap {
         cachedColors = null;
     }
 
+    @Override
+    public long getColorCacheSize() {
+        byte[][] cachedColors = this.cachedColors;
+        if (cachedColors == null) {
+            return 0;
+        }
+        long size = 0;
+        for (byte[] data : cachedColors) {
+            if (data != null) {
+                size += data.length;
+            }
+        }
+        return size;
+    }
+
     @Override
     public BufferedImage getOriginalImage(int mapId) {
         int index = mapIds.indexOf(mapId);
@@ -195,6 +210,11 @@ public class NonUpdatableStaticImageMap extends ImageMap {
             this.parent = parent;
         }
 
+        @Override
+        public int getSharedPacketFrame(MapView mapView, int currentTick) {
+            return 0;
+        }
+
         @Override
         public MutablePair<byte[], Collection<MapCursor>> renderMap(MapView mapView, Player player) {
             byte[] colors;
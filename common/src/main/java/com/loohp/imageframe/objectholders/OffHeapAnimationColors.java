@@ -0,0 +1,136 @@
+/*
+ * This file is part of ImageFrame.
+ *
+ * Copyright (C) 2025. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2025. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.imageframe.objectholders;
+
+import com.loohp.imageframe.utils.MapUtils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Map palette colors of every frame of an animated image map held outside the java heap,
+ * either in a direct buffer or in a memory mapped file.
+ * <p>
+ * Only the frame offsets are kept on heap, frames are copied into a new array when they
+ * are requested so the heap usage does not grow with the length of the animation. The copy
+ * of the last requested frame of every map is reused until another frame of that map is
+ * requested, as every viewer asks for the same frame on the same tick.
+ */
+public class OffHeapAnimationColors {
+
+    private static final int MAP_SIZE = MapUtils.MAP_WIDTH * MapUtils.MAP_WIDTH;
+
+    /**
+     * Copies the colors into a newly allocated direct buffer, null frames are kept as absent.
+     */
+    public static OffHeapAnimationColors allocate(byte[][][] colors) {
+        int[][] offsets = new int[colors.length][];
+        int count = 0;
+        for (int i = 0; i < colors.length; i++) {
+            byte[][] data = colors[i];
+            int[] frameOffsets = new int[data.length];
+            for (int u = 0; u < data.length; u++) {
+                frameOffsets[u] = data[u] == null ? -1 : count++ * MAP_SIZE;
+            }
+            offsets[i] = frameOffsets;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(count * MAP_SIZE);
+        for (byte[][] data : colors) {
+            for (byte[] frame : data) {
+                if (frame != null) {
+                    buffer.put(frame);
+                }
+            }
+        }
+        buffer.flip();
+        return new OffHeapAnimationColors(buffer, offsets);
+    }
+
+    /**
+     * @param buffer the buffer containing the frames, offsets are relative to position 0
+     * @param offsets the offset of every frame of every map, or -1 if the frame is absent
+     */
+    public static OffHeapAnimationColors wrap(ByteBuffer buffer, int[][] offsets) {
+        return new OffHeapAnimationColors(buffer.asReadOnlyBuffer(), offsets);
+    }
+
+    private final ByteBuffer buffer;
+    private final int[][] offsets;
+    private final AtomicReferenceArray<CopiedFrame> lastCopied;
+
+    private OffHeapAnimationColors(ByteBuffer buffer, int[][] offsets) {
+        this.buffer = buffer;
+        this.offsets = offsets;
+        this.lastCopied = new AtomicReferenceArray<>(offsets.length);
+    }
+
+    public int getMapCount() {
+        return offsets.length;
+    }
+
+    public int getFrameCount(int index) {
+        return offsets[index].length;
+    }
+
+    public boolean hasFrame(int index, int frame) {
+        return offsets[index][frame] >= 0;
+    }
+
+    /**
+     * @return a copy of the colors of the frame which must not be modified, or null if the frame is absent
+     */
+    public byte[] get(int index, int frame) {
+        int offset = offsets[index][frame];
+        if (offset < 0) {
+            return null;
+        }
+        CopiedFrame copied = lastCopied.get(index);
+        if (copied != null && copied.frame == frame) {
+            return copied.colors;
+        }
+        byte[] colors = new byte[MAP_SIZE];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(colors);
+        lastCopied.set(index, new CopiedFrame(frame, colors));
+        return colors;
+    }
+
+    /**
+     * @return the number of bytes held outside the heap
+     */
+    public long getSize() {
+        return buffer.capacity();
+    }
+
+    private static class CopiedFrame {
+
+        private final int frame;
+        private final byte[] colors;
+
+        private CopiedFrame(int frame, byte[] colors) {
+            this.frame = frame;
+            this.colors = colors;
+        }
+
+    }
+
+}
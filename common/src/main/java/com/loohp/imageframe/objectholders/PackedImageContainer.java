@@ -0,0 +1,359 @@
+/*
+ * This file is part of ImageFrame.
+ *
+ * Copyright (C) 2025. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2025. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.imageframe.objectholders;
+
+import com.google.common.io.ByteStreams;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * A set of images stored together as a single entry of a {@link LazyDataSource}, each
+ * image is kept as its own PNG blob inside the container.
+ * <p>
+ * The container starts with a table of the lengths of every blob, so that only the table is
+ * kept in memory and a single image is read from the source without reading the others.
+ */
+public class PackedImageContainer {
+
+    public static final int MAGIC = 0x4946504b;
+    public static final int VERSION = 2;
+
+    public static PackedImageContainer fromSource(LazyDataSource source, UUID id) {
+        return new PackedImageContainer(id, source, null, null);
+    }
+
+    /**
+     * Starts a new container of which the images are encoded into a temporary file in the folder as
+     * they are added, so that they are not held in memory until the container is saved.
+     */
+    public static Builder builder(File folder) throws IOException {
+        return new Builder(folder);
+    }
+
+    private final UUID id;
+    private LazyDataSource source;
+    private TemporaryDataSource temporary;
+    private long[] offsets;
+    private WeakReference<BufferedImage>[] weakReferences;
+
+    @SuppressWarnings("unchecked")
+    private PackedImageContainer(UUID id, LazyDataSource source, TemporaryDataSource temporary, long[] offsets) {
+        if (source == null && temporary == null) {
+            throw new IllegalArgumentException("One of source and temporary must not be null");
+        }
+        if (source != null && temporary != null) {
+            throw new IllegalArgumentException("Source and temporary cannot both be not null");
+        }
+        this.id = id;
+        this.source = source;
+        this.temporary = temporary;
+        this.offsets = offsets;
+        this.weakReferences = offsets == null ? null : new WeakReference[offsets.length - 1];
+    }
+
+    /**
+     * @return an id identifying the content of this container, a new one is assigned
+     * whenever a container is built from images, null if unknown
+     */
+    public UUID getId() {
+        return id;
+    }
+
+    /**
+     * @return the source the container is saved to, or null if it is not saved yet
+     */
+    public LazyDataSource getSource() {
+        return source;
+    }
+
+    public boolean canSetSource(LazyDataSource source) {
+        if (this.source != null) {
+            return this.source.equals(source);
+        }
+        return source != null;
+    }
+
+    public synchronized void setSource(LazyDataSource source) {
+        if (this.source != null) {
+            if (this.source.equals(source)) {
+                return;
+            }
+            throw new IllegalStateException("Cannot change source location");
+        }
+        if (source == null) {
+            throw new IllegalArgumentException("Cannot set source to null");
+        }
+        copy(temporary, source);
+        this.source = source;
+        temporary.delete();
+        this.temporary = null;
+    }
+
+    public synchronized void saveCopy(LazyDataSource source) {
+        copy(getReadSource(), source);
+    }
+
+    public synchronized int size() {
+        return loadOffsets().length - 1;
+    }
+
+    public synchronized BufferedImage get(int index) {
+        BufferedImage image = getIfLoaded(index);
+        if (image != null) {
+            return image;
+        }
+        long[] offsets = loadOffsets();
+        LazyDataSource source = getReadSource();
+        try {
+            byte[] bytes = source.loadRange(offsets[index], (int) (offsets[index + 1] - offsets[index]));
+            if (bytes == null) {
+                throw new RuntimeException("Packed image container " + source.getFileName() + " is missing");
+            }
+            image = ImageIO.read(new ByteArrayInputStream(bytes));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        weakReferences[index] = new WeakReference<>(image);
+        return image;
+    }
+
+    public synchronized BufferedImage getIfLoaded(int index) {
+        if (weakReferences == null) {
+            return null;
+        }
+        WeakReference<BufferedImage> reference = weakReferences[index];
+        return reference == null ? null : reference.get();
+    }
+
+    private LazyDataSource getReadSource() {
+        return temporary == null ? source : temporary;
+    }
+
+    @SuppressWarnings("unchecked")
+    private long[] loadOffsets() {
+        if (offsets != null) {
+            return offsets;
+        }
+        long[] offsets;
+        try {
+            offsets = source.load(in -> readOffsets(in));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if (offsets == null) {
+            throw new RuntimeException("Packed image container " + source.getFileName() + " is missing");
+        }
+        if (weakReferences == null || weakReferences.length != offsets.length - 1) {
+            weakReferences = new WeakReference[offsets.length - 1];
+        }
+        this.offsets = offsets;
+        return offsets;
+    }
+
+    private static void copy(LazyDataSource from, LazyDataSource to) {
+        try {
+            to.save(out -> {
+                Boolean copied = from.load(in -> {
+                    ByteStreams.copy(in, out);
+                    return true;
+                });
+                if (copied == null) {
+                    throw new IOException("Packed image container " + from.getFileName() + " is missing");
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static int getHeaderSize(int count) {
+        return 12 + count * 4;
+    }
+
+    private static void writeHeader(OutputStream outputStream, int[] lengths) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(lengths.length);
+        for (int length : lengths) {
+            out.writeInt(length);
+        }
+        out.flush();
+    }
+
+    /**
+     * @return the offset of every blob followed by the end of the last one
+     */
+    private static long[] readOffsets(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a packed image container");
+        }
+        int version = in.readInt();
+        int count = in.readInt();
+        long[] offsets = new long[count + 1];
+        if (version == 1) {
+            // Version 1 has the length in front of every blob instead of a table
+            long offset = 12;
+            for (int i = 0; i < count; i++) {
+                int length = in.readInt();
+                offsets[i] = offset + 4;
+                offset += 4 + length;
+                ByteStreams.skipFully(in, length);
+            }
+            offsets[count] = offset;
+            return offsets;
+        }
+        if (version != VERSION) {
+            throw new IOException("Unsupported packed image container version " + version);
+        }
+        offsets[0] = getHeaderSize(count);
+        for (int i = 0; i < count; i++) {
+            offsets[i + 1] = offsets[i] + in.readInt();
+        }
+        return offsets;
+    }
+
+    /**
+     * Encodes images one by one into a temporary file, only their lengths are kept in memory.
+     */
+    public static class Builder {
+
+        private final File file;
+        private final OutputStream out;
+        private int[] lengths;
+        private int count;
+
+        private Builder(File folder) throws IOException {
+            folder.mkdirs();
+            this.file = File.createTempFile("frames", ".pack.tmp", folder);
+            this.file.deleteOnExit();
+            this.out = new BufferedOutputStream(Files.newOutputStream(file.toPath()), 65536);
+            this.lengths = new int[16];
+            this.count = 0;
+        }
+
+        /**
+         * @return the index of the image in the container
+         */
+        public int add(BufferedImage image) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", bytes);
+            bytes.writeTo(out);
+            if (count >= lengths.length) {
+                lengths = Arrays.copyOf(lengths, lengths.length * 2);
+            }
+            lengths[count] = bytes.size();
+            return count++;
+        }
+
+        public PackedImageContainer build() throws IOException {
+            out.close();
+            int[] lengths = Arrays.copyOf(this.lengths, count);
+            long[] offsets = new long[count + 1];
+            offsets[0] = getHeaderSize(count);
+            for (int i = 0; i < count; i++) {
+                offsets[i + 1] = offsets[i] + lengths[i];
+            }
+            return new PackedImageContainer(UUID.randomUUID(), null, new TemporaryDataSource(file, lengths), offsets);
+        }
+
+        public void discard() {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+            file.delete();
+        }
+
+    }
+
+    /**
+     * The images of a container which is not saved yet, laid out in the same way as a saved container.
+     */
+    private static class TemporaryDataSource implements LazyDataSource {
+
+        private final File file;
+        private final int[] lengths;
+
+        private TemporaryDataSource(File file, int[] lengths) {
+            this.file = file;
+            this.lengths = lengths;
+        }
+
+        @Override
+        public <T> T load(Reader<T> reader) throws IOException {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            writeHeader(header, lengths);
+            try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+                return reader.read(new SequenceInputStream(new ByteArrayInputStream(header.toByteArray()), inputStream));
+            }
+        }
+
+        @Override
+        public byte[] loadRange(long offset, int length) throws IOException {
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+                randomAccessFile.seek(offset - getHeaderSize(lengths.length));
+                byte[] bytes = new byte[length];
+                randomAccessFile.readFully(bytes);
+                return bytes;
+            }
+        }
+
+        @Override
+        public void save(Writer writer) {
+            throw new UnsupportedOperationException("Temporary packed image container cannot be saved to");
+        }
+
+        @Override
+        public void delete() {
+            file.delete();
+        }
+
+        @Override
+        public String getFileName() {
+            return file.getName();
+        }
+
+        @Override
+        public LazyDataSource withFileName(String fileName) {
+            throw new UnsupportedOperationException("Temporary packed image container cannot be renamed");
+        }
+
+    }
+
+}
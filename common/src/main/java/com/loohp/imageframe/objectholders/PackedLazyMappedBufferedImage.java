@@ -0,0 +1,73 @@
+/*
+ * This file is part of ImageFrame.
+ *
+ * Copyright (C) 2025. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2025. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.imageframe.objectholders;
+
+import java.awt.image.BufferedImage;
+
+public class PackedLazyMappedBufferedImage implements LazyMappedBufferedImage {
+
+    private final PackedImageContainer container;
+    private final int index;
+
+    public PackedLazyMappedBufferedImage(PackedImageContainer container, int index) {
+        this.container = container;
+        this.index = index;
+    }
+
+    public PackedImageContainer getContainer() {
+        return container;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public LazyDataSource getSource() {
+        return container.getSource();
+    }
+
+    @Override
+    public boolean canSetSource(LazyDataSource source) {
+        return container.canSetSource(source);
+    }
+
+    @Override
+    public void setSource(LazyDataSource source) {
+        container.setSource(source);
+    }
+
+    @Override
+    public void saveCopy(LazyDataSource source) {
+        container.saveCopy(source);
+    }
+
+    @Override
+    public BufferedImage get() {
+        return container.get(index);
+    }
+
+    @Override
+    public BufferedImage getIfLoaded() {
+        return container.getIfLoaded(index);
+    }
+
+}
@@ -22,44 +22,153 @@ package com.loohp.imageframe.objectholders;
 
 import com.loohp.imageframe.ImageFrame;
 import com.loohp.imageframe.nms.NMS;
+import com.loohp.imageframe.utils.MapUtils;
 import com.loohp.platformscheduler.Scheduler;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerItemHeldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerSwapHandItemsEvent;
 import org.bukkit.event.server.PluginDisableEvent;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 
+/**
+ * Sends queued packets to each player at most once per tick as a single batch.
+ * <p>
+ * Packets are sent in order of their {@link MapPacketPriority}, then by distance to the player,
+ * then in the order they were queued. A packet queued for a map id replaces any unsent packet
+ * for the same map id, the callbacks of replaced packets are completed when the replacing one is sent.
+ * <p>
+ * Each player has a token bucket refilled at {@link ImageFrame#byteRateLimit} bytes per second.
+ * The rate adapts to the player's connection, it is halved whenever the connection is found to be
+ * not writable (its outbound buffer is backed up) and slowly recovers while it stays writable.
+ */
 public class RateLimitedPacketSendingManager implements Listener {
 
+    public static final int DEFAULT_PACKET_SIZE = 64;
+    public static final double MIN_RATE_FACTOR = 1.0 / 16.0;
+    public static final double RATE_FACTOR_RECOVERY = 1.0 / 32.0;
+    public static final int PARTIAL_KEYFRAME_INTERVAL = 20;
+    public static final int MAX_TRACKED_COLORS = 4;
+
+    private static final int[] FULL_AREA = new int[] {0, 0, MapUtils.MAP_WIDTH, MapUtils.MAP_WIDTH};
+
+    private static final Comparator<ScheduleEntry> SCHEDULE_ORDER = Comparator.comparing(ScheduleEntry::getPriority)
+            .thenComparingDouble(ScheduleEntry::getDistanceSquared)
+            .thenComparingLong(ScheduleEntry::getSequence);
+
+    /**
+     * Sends the packet to the player right away, {@link SharedMapPacket}s are written in their encoded form if possible.
+     */
+    public static void sendPacket(Player player, Object packet) {
+        if (packet instanceof SharedMapPacket) {
+            ((SharedMapPacket) packet).send(player);
+        } else {
+            NMS.getInstance().sendPacket(player, packet);
+        }
+    }
+
     private final Map<Player, Long> loginTime;
-    private final Map<Player, Queue<ScheduleEntry>> playerPacketQueue;
+    private final Map<Player, PlayerSendingState> playerSendingStates;
+    private final DispatchMode dispatchMode;
     private final ExecutorService packetSendingService;
 
-    public RateLimitedPacketSendingManager() {
+    /**
+     * @param dispatchMode how batches of packets of a player are dispatched, batches of the same player never run concurrently
+     * @param threads the number of threads of the pool used when dispatching to a pool
+     */
+    public RateLimitedPacketSendingManager(DispatchMode dispatchMode, int threads) {
         this.loginTime = new ConcurrentHashMap<>();
-        this.playerPacketQueue = new ConcurrentHashMap<>();
-        this.packetSendingService = Executors.newFixedThreadPool(4);
+        this.playerSendingStates = new ConcurrentHashMap<>();
+        this.dispatchMode = dispatchMode;
+        this.packetSendingService = dispatchMode.createExecutorService("ImageFrame Packet Sending Thread #%d", threads);
         Bukkit.getPluginManager().registerEvents(this, ImageFrame.plugin);
         Scheduler.runTaskTimerAsynchronously(ImageFrame.plugin, () -> run(), 0, 1);
         for (Player player : Bukkit.getOnlinePlayers()) {
-            playerPacketQueue.put(player, new ConcurrentLinkedQueue<>());
+            playerSendingStates.put(player, new PlayerSendingState());
         }
     }
 
     public boolean queue(Player player, Object packet, BiConsumer<Player, Boolean> completionCallback) {
-        Queue<ScheduleEntry> queue = playerPacketQueue.get(player);
-        if (queue != null) {
-            return queue.add(new ScheduleEntry(packet, completionCallback));
+        return queue(player, packet, DEFAULT_PACKET_SIZE, completionCallback);
+    }
+
+    /**
+     * @param size the estimated size of the packet in bytes, used for the byte rate limit
+     */
+    public boolean queue(Player player, Object packet, int size, BiConsumer<Player, Boolean> completionCallback) {
+        return queue(player, packet, size, MapPacketPriority.FRAME, 0, completionCallback);
+    }
+
+    /**
+     * @param size the estimated size of the packet in bytes, used for the byte rate limit
+     * @param priority the priority class of the packet
+     * @param distanceSquared the squared distance from the player to what the packet is for, 0 if unknown
+     */
+    public boolean queue(Player player, Object packet, int size, MapPacketPriority priority, double distanceSquared, BiConsumer<Player, Boolean> completionCallback) {
+        return queue(player, -1, packet, size, priority, distanceSquared, completionCallback);
+    }
+
+    /**
+     * @param mapId the map id the packet updates, an unsent packet queued earlier for the same map id is
+     *              replaced by this one, or -1 if the packet should never replace or be replaced
+     * @param size the estimated size of the packet in bytes, used for the byte rate limit
+     * @param priority the priority class of the packet
+     * @param distanceSquared the squared distance from the player to what the packet is for, 0 if unknown
+     */
+    public boolean queue(Player player, int mapId, Object packet, int size, MapPacketPriority priority, double distanceSquared, BiConsumer<Player, Boolean> completionCallback) {
+        return queue(player, mapId, packet, size, priority, distanceSquared, false, completionCallback);
+    }
+
+    /**
+     * @param mapId the map id the packet updates, an unsent packet queued earlier for the same map id is
+     *              replaced by this one, or -1 if the packet should never replace or be replaced
+     * @param size the estimated size of the packet in bytes, used for the byte rate limit
+     * @param priority the priority class of the packet
+     * @param distanceSquared the squared distance from the player to what the packet is for, 0 if unknown
+     * @param partial whether the packet only updates part of the map relative to the packet queued before it
+     *                for the same map id, a partial packet only replaces an earlier one if it covers everything
+     *                the earlier one updates, otherwise it is sent after it
+     * @param area the area updated by a partial packet as x, y, width and height, or null if it updates no colors
+     */
+    public boolean queue(Player player, int mapId, Object packet, int size, MapPacketPriority priority, double distanceSquared, boolean partial, int[] area, BiConsumer<Player, Boolean> completionCallback) {
+        PlayerSendingState state = playerSendingStates.get(player);
+        if (state != null) {
+            if (mapId < 0) {
+                return state.queue.add(new ScheduleEntry(mapId, packet, size, priority, distanceSquared, state.sequence.getAndIncrement(), completionCallback));
+            }
+            ScheduleEntry scheduleEntry = state.pendingByMapId.compute(mapId, (k, previous) -> {
+                if (previous != null && (!partial || contains(area, previous.getArea())) && previous.supersede()) {
+                    BiConsumer<Player, Boolean> previousCallback = previous.getCompletionCallback();
+                    BiConsumer<Player, Boolean> callback = previousCallback == null ? completionCallback : (completionCallback == null ? previousCallback : previousCallback.andThen(completionCallback));
+                    MapPacketPriority mergedPriority = previous.getPriority().compareTo(priority) < 0 ? previous.getPriority() : priority;
+                    double mergedDistanceSquared = Math.min(previous.getDistanceSquared(), distanceSquared);
+                    return new ScheduleEntry(mapId, packet, size, mergedPriority, mergedDistanceSquared, previous.getSequence(), partial, area, callback);
+                }
+                if (partial && previous != null) {
+                    return new ScheduleEntry(mapId, packet, size, previous.getPriority(), previous.getDistanceSquared(), state.sequence.getAndIncrement(), true, area, completionCallback);
+                }
+                return new ScheduleEntry(mapId, packet, size, priority, distanceSquared, state.sequence.getAndIncrement(), partial, area, completionCallback);
+            });
+            return state.queue.add(scheduleEntry);
         }
         if (completionCallback != null) {
             completionCallback.accept(player, false);
@@ -67,27 +176,167 @@ public class RateLimitedPacketSendingManager implements Listener {
         return false;
     }
 
+    private static boolean contains(int[] area, int[] other) {
+        if (other == null) {
+            return true;
+        }
+        if (area == null) {
+            return false;
+        }
+        return area[0] <= other[0] && area[1] <= other[1] && area[0] + area[2] >= other[0] + other[2] && area[1] + area[3] >= other[1] + other[3];
+    }
+
+    /**
+     * @return the area a packet queued now for the map id has to update so that it can replace the unsent
+     * packet already queued, as x, y, width and height, or null if there is nothing to cover
+     */
+    public int[] getPendingArea(Player player, int mapId) {
+        PlayerSendingState state = playerSendingStates.get(player);
+        if (state == null) {
+            return null;
+        }
+        ScheduleEntry scheduleEntry = state.pendingByMapId.get(mapId);
+        return scheduleEntry == null ? null : scheduleEntry.getArea();
+    }
+
+    /**
+     * Records the colors of the map last queued to the player, which partial packets queued afterwards are relative to.
+     * A full packet is asked for every {@link #PARTIAL_KEYFRAME_INTERVAL} packets, so that the player recovers if
+     * the colors shown to them were changed by something else.
+     *
+     * @param colors the colors queued, or null if the colors the player will have are unknown
+     * @return the colors previously recorded, or null if a full packet should be queued
+     */
+    public byte[] swapLastQueuedColors(Player player, int mapId, byte[] colors) {
+        PlayerSendingState state = playerSendingStates.get(player);
+        if (state == null) {
+            return null;
+        }
+        if (colors == null) {
+            state.lastQueuedColors.remove(mapId);
+            return null;
+        }
+        QueuedColors previous = state.lastQueuedColors.get(mapId);
+        if (previous == null && state.lastQueuedColors.size() >= MAX_TRACKED_COLORS) {
+            return null;
+        }
+        int partials = previous == null || previous.partials >= PARTIAL_KEYFRAME_INTERVAL ? 0 : previous.partials + 1;
+        state.lastQueuedColors.put(mapId, new QueuedColors(colors, partials));
+        return partials == 0 ? null : previous.colors;
+    }
+
+    /**
+     * Forgets the colors of the map last queued to the player, the next packet for it is sent in full.
+     */
+    public void invalidateLastQueuedColors(Player player, int mapId) {
+        PlayerSendingState state = playerSendingStates.get(player);
+        if (state != null) {
+            state.lastQueuedColors.remove(mapId);
+        }
+    }
+
+    public void invalidateLastQueuedColors(int mapId) {
+        for (PlayerSendingState state : playerSendingStates.values()) {
+            state.lastQueuedColors.remove(mapId);
+        }
+    }
+
+    public void invalidateLastQueuedColors(Player player) {
+        PlayerSendingState state = playerSendingStates.get(player);
+        if (state != null) {
+            state.lastQueuedColors.clear();
+        }
+    }
+
+    /**
+     * Forgets the colors of every map last queued to the player other than the given ones.
+     */
+    public void retainLastQueuedColors(Player player, int mapId, int otherMapId) {
+        PlayerSendingState state = playerSendingStates.get(player);
+        if (state != null && !state.lastQueuedColors.isEmpty()) {
+            state.lastQueuedColors.keySet().removeIf(each -> each != mapId && each != otherMapId);
+        }
+    }
+
     private void run() {
         int rateLimit = ImageFrame.rateLimit;
+        long byteRateLimit = ImageFrame.byteRateLimit;
         long now = System.currentTimeMillis();
-        for (Map.Entry<Player, Queue<ScheduleEntry>> entry : playerPacketQueue.entrySet()) {
+        long nanoTime = System.nanoTime();
+        for (Map.Entry<Player, PlayerSendingState> entry : playerSendingStates.entrySet()) {
             Player player = entry.getKey();
             if (now - loginTime.getOrDefault(player, now) < 500) {
                 continue;
             }
-            Queue<ScheduleEntry> queue = entry.getValue();
+            PlayerSendingState state = entry.getValue();
+            if (state.queue.isEmpty() || state.sending.get()) {
+                continue;
+            }
+            long writableBytes = NMS.getInstance().getConnectionWritableBytes(player);
+            if (writableBytes == 0) {
+                state.rateFactor = Math.max(MIN_RATE_FACTOR, state.rateFactor / 2);
+                continue;
+            }
+            state.rateFactor = Math.min(1, state.rateFactor + RATE_FACTOR_RECOVERY);
+            if (byteRateLimit >= 0) {
+                state.refill(nanoTime, byteRateLimit * state.rateFactor);
+            }
+            List<ScheduleEntry> batch = new ArrayList<>();
             for (int counter = 0; rateLimit < 0 || counter < rateLimit; counter++) {
-                ScheduleEntry scheduleEntry = queue.poll();
+                if (byteRateLimit >= 0 && state.tokens <= 0) {
+                    break;
+                }
+                ScheduleEntry scheduleEntry = state.queue.poll();
                 if (scheduleEntry == null) {
                     break;
                 }
-                packetSendingService.execute(() -> {
-                    NMS.getInstance().sendPacket(player, scheduleEntry.getPacket());
+                if (!scheduleEntry.claim()) {
+                    counter--;
+                    continue;
+                }
+                if (scheduleEntry.getMapId() >= 0) {
+                    state.pendingByMapId.remove(scheduleEntry.getMapId(), scheduleEntry);
+                }
+                if (byteRateLimit >= 0) {
+                    state.tokens -= scheduleEntry.getSize();
+                }
+                batch.add(scheduleEntry);
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            state.sending.set(true);
+            Executor executor = packetSendingService;
+            if (dispatchMode == DispatchMode.EVENT_LOOP) {
+                if (state.eventLoop == null) {
+                    state.eventLoop = NMS.getInstance().getConnectionEventLoop(player);
+                }
+                if (state.eventLoop != null) {
+                    executor = state.eventLoop;
+                }
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        for (ScheduleEntry scheduleEntry : batch) {
+                            sendPacket(player, scheduleEntry.getPacket());
+                            BiConsumer<Player, Boolean> completionCallback = scheduleEntry.getCompletionCallback();
+                            if (completionCallback != null) {
+                                completionCallback.accept(player, true);
+                            }
+                        }
+                    } finally {
+                        state.sending.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                state.sending.set(false);
+                for (ScheduleEntry scheduleEntry : batch) {
                     BiConsumer<Player, Boolean> completionCallback = scheduleEntry.getCompletionCallback();
                     if (completionCallback != null) {
-                        completionCallback.accept(player, true);
+                        completionCallback.accept(player, false);
                     }
-                });
+                }
             }
         }
     }
@@ -96,14 +345,24 @@ public class RateLimitedPacketSendingManager implements Listener {
     public void onJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
         loginTime.put(player, System.currentTimeMillis());
-        playerPacketQueue.put(player, new ConcurrentLinkedQueue<>());
+        playerSendingStates.put(player, new PlayerSendingState());
     }
 
     @EventHandler
     public void onQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
         loginTime.remove(player);
-        playerPacketQueue.remove(player);
+        playerSendingStates.remove(player);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemHeld(PlayerItemHeldEvent event) {
+        invalidateLastQueuedColors(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSwapHandItems(PlayerSwapHandItemsEvent event) {
+        invalidateLastQueuedColors(event.getPlayer());
     }
 
     @EventHandler
@@ -113,20 +372,142 @@ public class RateLimitedPacketSendingManager implements Listener {
         }
     }
 
+    private static class PlayerSendingState {
+
+        private final Queue<ScheduleEntry> queue;
+        private final Map<Integer, ScheduleEntry> pendingByMapId;
+        private final Map<Integer, QueuedColors> lastQueuedColors;
+        private final AtomicLong sequence;
+        private final AtomicBoolean sending;
+        private Executor eventLoop;
+        private double tokens;
+        private double rateFactor;
+        private long lastRefill;
+
+        private PlayerSendingState() {
+            this.queue = new PriorityBlockingQueue<>(16, SCHEDULE_ORDER);
+            this.pendingByMapId = new ConcurrentHashMap<>();
+            this.lastQueuedColors = new ConcurrentHashMap<>();
+            this.sequence = new AtomicLong();
+            this.sending = new AtomicBoolean(false);
+            this.tokens = 0;
+            this.rateFactor = 1;
+            this.lastRefill = System.nanoTime();
+        }
+
+        private void refill(long nanoTime, double bytesPerSecond) {
+            double elapsed = (nanoTime - lastRefill) / 1000000000.0;
+            lastRefill = nanoTime;
+            // Allow bursting up to one second worth of bytes
+            tokens = Math.min(Math.max(bytesPerSecond, 1), tokens + elapsed * bytesPerSecond);
+        }
+    }
+
+    private static class QueuedColors {
+
+        private final byte[] colors;
+        private final int partials;
+
+        private QueuedColors(byte[] colors, int partials) {
+            this.colors = colors;
+            this.partials = partials;
+        }
+    }
+
     public static class ScheduleEntry {
 
+        private static final int STATE_PENDING = 0;
+        private static final int STATE_CLAIMED = 1;
+        private static final int STATE_SUPERSEDED = 2;
+
+        private final int mapId;
         private final Object packet;
+        private final int size;
+        private final MapPacketPriority priority;
+        private final double distanceSquared;
+        private final long sequence;
+        private final boolean partial;
+        private final int[] area;
         private final BiConsumer<Player, Boolean> completionCallback;
+        private final AtomicInteger state;
 
         public ScheduleEntry(Object packet, BiConsumer<Player, Boolean> completionCallback) {
+            this(-1, packet, DEFAULT_PACKET_SIZE, MapPacketPriority.FRAME, 0, 0, completionCallback);
+        }
+
+        public ScheduleEntry(int mapId, Object packet, int size, MapPacketPriority priority, double distanceSquared, long sequence, BiConsumer<Player, Boolean> completionCallback) {
+            this(mapId, packet, size, priority, distanceSquared, sequence, false, null, completionCallback);
+        }
+
+        /**
+         * @param area the area updated by a partial packet as x, y, width and height, or null if it updates no colors
+         */
+        public ScheduleEntry(int mapId, Object packet, int size, MapPacketPriority priority, double distanceSquared, long sequence, boolean partial, int[] area, BiConsumer<Player, Boolean> completionCallback) {
+            this.mapId = mapId;
             this.packet = packet;
+            this.size = size;
+            this.priority = priority;
+            this.distanceSquared = distanceSquared;
+            this.sequence = sequence;
+            this.partial = partial;
+            this.area = partial ? area : FULL_AREA;
             this.completionCallback = completionCallback;
+            this.state = new AtomicInteger(STATE_PENDING);
+        }
+
+        /**
+         * Marks this entry as being sent.
+         *
+         * @return false if this entry was replaced by a newer one and should be dropped
+         */
+        private boolean claim() {
+            return state.compareAndSet(STATE_PENDING, STATE_CLAIMED);
+        }
+
+        /**
+         * Marks this entry as replaced by a newer one.
+         *
+         * @return false if this entry is already being sent
+         */
+        private boolean supersede() {
+            return state.compareAndSet(STATE_PENDING, STATE_SUPERSEDED);
+        }
+
+        public int getMapId() {
+            return mapId;
         }
 
         public Object getPacket() {
             return packet;
         }
 
+        public int getSize() {
+            return size;
+        }
+
+        public MapPacketPriority getPriority() {
+            return priority;
+        }
+
+        public double getDistanceSquared() {
+            return distanceSquared;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public boolean isPartial() {
+            return partial;
+        }
+
+        /**
+         * @return the area updated by the packet as x, y, width and height, or null if it updates no colors
+         */
+        public int[] getArea() {
+            return area;
+        }
+
         public BiConsumer<Player, Boolean> getCompletionCallback() {
             return completionCallback;
         }
@@ -0,0 +1,61 @@
+/*
+ * This file is part of ImageFrame.
+ *
+ * Copyright (C) 2025. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2025. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.imageframe.objectholders;
+
+import com.loohp.imageframe.ImageFrame;
+import com.loohp.imageframe.nms.NMS;
+import org.bukkit.entity.Player;
+
+/**
+ * A map packet sent to many players, which is encoded only once when
+ * {@link ImageFrame#preSerializeMapPackets} is enabled and the server version supports it.
+ */
+public class SharedMapPacket {
+
+    private static final Object UNSUPPORTED = new Object();
+
+    private final Object packet;
+    private volatile Object serializedPacket;
+
+    public SharedMapPacket(Object packet) {
+        this.packet = packet;
+        this.serializedPacket = null;
+    }
+
+    public Object getPacket() {
+        return packet;
+    }
+
+    public void send(Player player) {
+        if (ImageFrame.preSerializeMapPackets) {
+            Object serializedPacket = this.serializedPacket;
+            if (serializedPacket == null) {
+                serializedPacket = NMS.getInstance().serializePacket(player, packet);
+                this.serializedPacket = serializedPacket = serializedPacket == null ? UNSUPPORTED : serializedPacket;
+            }
+            if (serializedPacket != UNSUPPORTED && NMS.getInstance().sendSerializedPacket(player, serializedPacket)) {
+                return;
+            }
+        }
+        NMS.getInstance().sendPacket(player, packet);
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * This file is part of ImageFrame.
+ *
+ * Copyright (C) 2025. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2025. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.imageframe.objectholders;
+
+import com.loohp.imageframe.ImageFrame;
+import com.loohp.imageframe.api.events.ImageMapDeletedEvent;
+import com.loohp.imageframe.api.events.ImageMapUpdatedEvent;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Map packets that are the same for every player, built once per map id and frame and then
+ * sent to every viewer instead of rendering and building a new packet for each player.
+ * <p>
+ * Packets of an image map are dropped whenever an {@link ImageMapUpdatedEvent} or
+ * {@link ImageMapDeletedEvent} is fired for it, and image maps are evicted in least recently
+ * used order once the total size of their packets exceeds the configured size.
+ */
+public class SharedMapPacketCache implements Listener {
+
+    private static final SharedMapPacketCache INSTANCE = new SharedMapPacketCache();
+
+    public static SharedMapPacketCache getInstance() {
+        return INSTANCE;
+    }
+
+    private final LinkedHashMap<ImageMap, MapPackets> cachedPackets;
+    private volatile long maxSize;
+    private long usedBytes;
+
+    private SharedMapPacketCache() {
+        this.cachedPackets = new LinkedHashMap<>(16, 0.75F, true);
+        this.maxSize = 0;
+        this.usedBytes = 0;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        synchronized (this) {
+            evict(null);
+        }
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Packets may only be shared if no one can change them for a specific player, that is when the
+     * renderer does not depend on the player, no render event listener other than the built-in marker
+     * editing one is registered, and no one is currently editing a marker on the image map.
+     */
+    public boolean canShare(ImageMap imageMap) {
+        if (maxSize <= 0) {
+            return false;
+        }
+        MapMarkerEditManager mapMarkerEditManager = ImageFrame.mapMarkerEditManager;
+        for (ImageMapRenderEventListener listener : imageMap.getManager().getRenderEventListeners()) {
+            if (mapMarkerEditManager == null || listener != mapMarkerEditManager.getRenderEventListener()) {
+                return false;
+            }
+        }
+        return mapMarkerEditManager == null || !mapMarkerEditManager.isActiveEditing(imageMap);
+    }
+
+    /**
+     * @return the packets of the image map, packets put into the returned holder after the image map is
+     * invalidated are discarded
+     */
+    public synchronized MapPackets getPackets(ImageMap imageMap) {
+        return cachedPackets.computeIfAbsent(imageMap, k -> new MapPackets(this, k));
+    }
+
+    public synchronized void invalidate(ImageMap imageMap) {
+        MapPackets packets = cachedPackets.remove(imageMap);
+        if (packets != null) {
+            packets.detached = true;
+            usedBytes -= packets.size;
+        }
+    }
+
+    public synchronized void clear() {
+        for (MapPackets packets : cachedPackets.values()) {
+            packets.detached = true;
+        }
+        cachedPackets.clear();
+        usedBytes = 0;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onImageMapUpdated(ImageMapUpdatedEvent event) {
+        invalidate(event.getImageMap());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onImageMapDeleted(ImageMapDeletedEvent event) {
+        invalidate(event.getImageMap());
+    }
+
+    private void added(MapPackets packets, long size) {
+        if (packets.detached) {
+            return;
+        }
+        packets.size += size;
+        usedBytes += size;
+        evict(packets);
+    }
+
+    private void evict(MapPackets keep) {
+        Iterator<MapPackets> itr = cachedPackets.values().iterator();
+        while (usedBytes > maxSize && itr.hasNext()) {
+            MapPackets packets = itr.next();
+            if (packets == keep) {
+                continue;
+            }
+            itr.remove();
+            packets.detached = true;
+            usedBytes -= packets.size;
+        }
+        if (usedBytes > maxSize && keep != null) {
+            invalidate(keep.imageMap);
+        }
+    }
+
+    public static class MapPackets {
+
+        private final SharedMapPacketCache cache;
+        private final ImageMap imageMap;
+        private final Map<Long, Object> packets;
+        private boolean detached;
+        private long size;
+
+        private MapPackets(SharedMapPacketCache cache, ImageMap imageMap) {
+            this.cache = cache;
+            this.imageMap = imageMap;
+            this.packets = new ConcurrentHashMap<>();
+            this.detached = false;
+            this.size = 0;
+        }
+
+        private static long key(int mapId, int frame) {
+            return ((long) mapId << 32) | (frame & 0xFFFFFFFFL);
+        }
+
+        public Object get(int mapId, int frame) {
+            return packets.get(key(mapId, frame));
+        }
+
+        /**
+         * @return the packet already cached for the map id and frame if there is one, otherwise the given packet
+         */
+        public Object put(int mapId, int frame, Object packet, long size) {
+            Object existing = packets.putIfAbsent(key(mapId, frame), packet);
+            if (existing != null) {
+                return existing;
+            }
+            synchronized (cache) {
+                cache.added(this, size);
+            }
+            return packet;
+        }
+
+    }
+
+}
@@ -20,24 +20,35 @@
 
 package com.loohp.imageframe.objectholders;
 
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.loohp.imageframe.ImageFrame;
 import com.loohp.imageframe.api.events.ImageMapUpdatedEvent;
 import com.loohp.imageframe.media.TimedMediaFrameIterator;
 import com.loohp.imageframe.storage.ImageFrameStorage;
-import com.loohp.imageframe.utils.CollectionUtils;
+import com.loohp.imageframe.storage.PaletteColorCacheFile;
+import com.loohp.imageframe.utils.ImageUtils;
+import com.loohp.imageframe.utils.MapPaletteIndex;
 import com.loohp.imageframe.utils.MapUtils;
+import net.md_5.bungee.api.ChatColor;
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.map.MapCursor;
 import org.bukkit.map.MapView;
 
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -45,10 +56,15 @@ import java.util.UUID;
 
 public class URLAnimatedImageMap extends URLImageMap {
 
+    public static final String FRAME_PACK_FILE_NAME = "frames.pack";
+
     protected final LazyMappedBufferedImage[][] cachedImages;
 
     protected byte[][][] cachedColors;
+    protected OffHeapAnimationColors offHeapColors;
+    protected long cachedColorsSize;
     protected int[][] fakeMapIds;
+    protected int[][] resolvedFakeMapIds;
     protected Set<Integer> fakeMapIdsSet;
     protected int pausedAt;
     protected int tickOffset;
@@ -69,9 +85,77 @@ public class URLAnimatedImageMap extends URLImageMap {
         if (cachedImages[0] == null) {
             return;
         }
-        byte[][][] cachedColors = new byte[cachedImages.length][][];
-        int[][] fakeMapIds = new int[cachedColors.length][];
+        String cacheKey = getPaletteColorCacheKey();
+        File cacheFile = imageIndex < 0 ? null : new File(manager.getStorage().getLocalCacheFolder(imageIndex), PaletteColorCacheFile.FILE_NAME);
+        if (cacheKey == null && cacheFile != null) {
+            PaletteColorCacheFile.delete(cacheFile);
+            cacheFile = null;
+        }
+        boolean offHeap = cacheControlTask.isOffHeap();
+        byte[][][] cachedColors = null;
+        OffHeapAnimationColors offHeapColors = null;
+        if (cacheFile != null) {
+            if (offHeap) {
+                offHeapColors = PaletteColorCacheFile.mapOffHeap(cacheFile, cacheKey, cachedImages.length, cachedImages[0].length);
+            } else {
+                cachedColors = PaletteColorCacheFile.read(cacheFile, cacheKey, cachedImages.length, cachedImages[0].length);
+            }
+        }
+        if (cachedColors == null && offHeapColors == null) {
+            byte[][][] colors = ditherColors();
+            if (cacheFile != null) {
+                PaletteColorCacheFile.write(cacheFile, cacheKey, colors);
+            }
+            if (offHeap) {
+                if (cacheFile != null) {
+                    offHeapColors = PaletteColorCacheFile.mapOffHeap(cacheFile, cacheKey, cachedImages.length, cachedImages[0].length);
+                }
+                if (offHeapColors == null) {
+                    offHeapColors = OffHeapAnimationColors.allocate(colors);
+                }
+            } else {
+                cachedColors = colors;
+            }
+        }
+        int maps = cachedImages.length;
+        int[][] fakeMapIds = new int[maps][];
+        int[][] resolvedFakeMapIds = new int[maps][];
         Set<Integer> fakeMapIdsSet = new HashSet<>();
+        long size = offHeapColors == null ? 0 : offHeapColors.getSize();
+        for (int i = 0; i < maps; i++) {
+            int frames = offHeapColors == null ? cachedColors[i].length : offHeapColors.getFrameCount(i);
+            int[] mapIds = new int[frames];
+            int[] resolvedMapIds = new int[frames];
+            Arrays.fill(mapIds, -1);
+            for (int u = 0; u < frames; u++) {
+                if (offHeapColors == null ? cachedColors[i][u] != null : offHeapColors.hasFrame(i, u)) {
+                    int mapId = ImageMapManager.getNextFakeMapId();
+                    mapIds[u] = mapId;
+                    fakeMapIdsSet.add(mapId);
+                    if (offHeapColors == null) {
+                        size += cachedColors[i][u].length;
+                    }
+                }
+                resolvedMapIds[u] = mapIds[u] >= 0 || u == 0 ? mapIds[u] : resolvedMapIds[u - 1];
+            }
+            fakeMapIds[i] = mapIds;
+            resolvedFakeMapIds[i] = resolvedMapIds;
+        }
+        this.cachedColors = cachedColors;
+        this.offHeapColors = offHeapColors;
+        this.cachedColorsSize = size;
+        Set<Integer> previousFakeMapIds = this.fakeMapIdsSet;
+        this.fakeMapIds = fakeMapIds;
+        this.resolvedFakeMapIds = resolvedFakeMapIds;
+        this.fakeMapIdsSet = fakeMapIdsSet;
+        manager.updateFakeMapIds(this, previousFakeMapIds);
+    }
+
+    /**
+     * Dithers every frame, frames identical to the previous frame of the same map are left null.
+     */
+    protected byte[][][] ditherColors() {
+        byte[][][] cachedColors = new byte[cachedImages.length][][];
         BufferedImage[] combined = new BufferedImage[cachedImages[0].length];
         for (int i = 0; i < combined.length; i++) {
             combined[i] = new BufferedImage(width * MapUtils.MAP_WIDTH, height * MapUtils.MAP_WIDTH, BufferedImage.TYPE_INT_ARGB);
@@ -96,8 +180,6 @@ public class URLAnimatedImageMap extends URLImageMap {
         int i = 0;
         for (LazyMappedBufferedImage[] images : cachedImages) {
             byte[][] data = new byte[images.length][];
-            int[] mapIds = new int[data.length];
-            Arrays.fill(mapIds, -1);
             byte[] lastDistinctFrame = null;
             for (int u = 0; u < images.length; u++) {
                 byte[] b = new byte[MapUtils.MAP_WIDTH * MapUtils.MAP_WIDTH];
@@ -107,19 +189,29 @@ public class URLAnimatedImageMap extends URLImageMap {
                 }
                 if (u == 0 || !Arrays.equals(b, lastDistinctFrame)) {
                     data[u] = b;
-                    int mapId = ImageMapManager.getNextFakeMapId();
-                    mapIds[u] = mapId;
-                    fakeMapIdsSet.add(mapId);
                     lastDistinctFrame = b;
                 }
             }
             cachedColors[i] = data;
-            fakeMapIds[i] = mapIds;
             i++;
         }
-        this.cachedColors = cachedColors;
-        this.fakeMapIds = fakeMapIds;
-        this.fakeMapIdsSet = fakeMapIdsSet;
+        return cachedColors;
+    }
+
+    /**
+     * @return a key identifying the source frames and settings the palette colors are derived from,
+     * or null if the colors of this image map should not be cached on disk
+     */
+    protected String getPaletteColorCacheKey() {
+        if (!ImageFrame.persistAnimatedColorCache || imageIndex < 0) {
+            return null;
+        }
+        PackedImageContainer container = getPackedImageContainer();
+        if (container == null || container.getId() == null) {
+            return null;
+        }
+        String dithering = ditheringType == null ? "default" : ditheringType.getName();
+        return container.getId() + ":" + dithering + ":" + width + "x" + height + ":" + MapPaletteIndex.getInstance().getPaletteSize();
     }
 
     @Override
@@ -131,46 +223,135 @@ public class URLAnimatedImageMap extends URLImageMap {
 
     @Override
     public boolean hasColorCached() {
-        return cachedColors != null;
+        return cachedColors != null || offHeapColors != null;
     }
 
     @Override
     public void unloadColorCache() {
         cachedColors = null;
+        offHeapColors = null;
+        cachedColorsSize = 0;
+        // Do not keep the unloaded frames reachable through the colors last queued to players
+        if (ImageFrame.rateLimitedPacketSendingManager != null) {
+            for (int mapId : mapIds) {
+                ImageFrame.rateLimitedPacketSendingManager.invalidateLastQueuedColors(mapId);
+            }
+        }
+    }
+
+    @Override
+    public long getColorCacheSize() {
+        return cachedColorsSize;
     }
 
     @Override
     public void update(boolean save) throws Exception {
-        List<BufferedImage> images = CollectionUtils.toList(new TimedMediaFrameIterator(loader.tryLoadMedia(url), 50));
-        for (int i = 0; i < cachedImages.length; i++) {
-            cachedImages[i] = new LazyMappedBufferedImage[images.size()];
-        }
+        // Frames are resized and split into tiles one at a time as they are decoded, identical tiles
+        // anywhere in the sequence are stored once, unique tiles are encoded into the frame pack right
+        // away and only a hash of each is kept to find the identical ones
+        Iterator<BufferedImage> frames = new TimedMediaFrameIterator(loader.tryLoadMedia(url), 50);
+        Map<HashCode, Integer> tileIndexes = new HashMap<>();
+        int[][] tileReferences = new int[cachedImages.length][16];
+        int capacity = 16;
         int index = 0;
-        Map<IntPosition, LazyMappedBufferedImage> previousImages = new HashMap<>();
-        for (BufferedImage image : images) {
-            image = MapUtils.resize(image, width, height);
-            int i = 0;
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    IntPosition intPosition = new IntPosition(x, y);
-                    BufferedImage subImage = MapUtils.getSubImage(image, x, y);
-                    LazyMappedBufferedImage previousFile = previousImages.get(intPosition);
-                    LazyMappedBufferedImage file;
-                    if (previousFile == null || !MapUtils.areImagesEqual(subImage, previousFile.getIfLoaded())) {
-                        file = StandardLazyMappedBufferedImage.fromImage(subImage);
-                    } else {
-                        file = previousFile;
+        BufferedImage lastImage = null;
+        PackedImageContainer.Builder builder = PackedImageContainer.builder(new File(ImageFrame.plugin.getDataFolder(), "cache"));
+        PackedImageContainer container;
+        try {
+            while (frames.hasNext()) {
+                BufferedImage image = frames.next();
+                if (index >= capacity) {
+                    capacity *= 2;
+                    for (int i = 0; i < tileReferences.length; i++) {
+                        tileReferences[i] = Arrays.copyOf(tileReferences[i], capacity);
+                    }
+                }
+                if (image == lastImage) {
+                    // The same source frame lasts for more than one tick
+                    for (int[] references : tileReferences) {
+                        references[index] = references[index - 1];
+                    }
+                    index++;
+                    continue;
+                }
+                lastImage = image;
+                image = MapUtils.resize(image, width, height);
+                int i = 0;
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        int[] pixels = ImageUtils.getARGBPixels(MapUtils.getSubImage(image, x, y));
+                        Hasher hasher = Hashing.sha256().newHasher();
+                        for (int pixel : pixels) {
+                            hasher.putInt(pixel);
+                        }
+                        HashCode tileHash = hasher.hash();
+                        Integer tileIndex = tileIndexes.get(tileHash);
+                        if (tileIndex == null) {
+                            BufferedImage tile = new BufferedImage(MapUtils.MAP_WIDTH, MapUtils.MAP_WIDTH, BufferedImage.TYPE_INT_ARGB);
+                            tile.setRGB(0, 0, MapUtils.MAP_WIDTH, MapUtils.MAP_WIDTH, pixels, 0, MapUtils.MAP_WIDTH);
+                            tileIndex = builder.add(tile);
+                            tileIndexes.put(tileHash, tileIndex);
+                        }
+                        tileReferences[i++][index] = tileIndex;
+                    }
+                }
+                index++;
+            }
+            container = builder.build();
+        } catch (Throwable e) {
+            builder.discard();
+            throw e;
+        }
+        int frameCount = index;
+        Set<LazyDataSource> previousSources = new HashSet<>();
+        for (LazyMappedBufferedImage[] images : cachedImages) {
+            if (images != null) {
+                for (LazyMappedBufferedImage image : images) {
+                    LazyDataSource source = image.getSource();
+                    if (source != null) {
+                        previousSources.add(source);
                     }
-                    cachedImages[i++][index] = file;
-                    previousImages.put(intPosition, file);
                 }
             }
-            index++;
+        }
+        LazyMappedBufferedImage[] tiles = new LazyMappedBufferedImage[tileIndexes.size()];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = new PackedLazyMappedBufferedImage(container, i);
+        }
+        for (int i = 0; i < cachedImages.length; i++) {
+            LazyMappedBufferedImage[] images = new LazyMappedBufferedImage[frameCount];
+            for (int u = 0; u < frameCount; u++) {
+                images[u] = tiles[tileReferences[i][u]];
+            }
+            cachedImages[i] = images;
         }
         reloadColorCache();
         Bukkit.getPluginManager().callEvent(new ImageMapUpdatedEvent(this));
         if (save) {
             save();
+            deleteSuperseded(previousSources);
+        }
+    }
+
+    /**
+     * Deletes the files of the previous frames of this image map which the new frame pack did not overwrite.
+     */
+    private void deleteSuperseded(Set<LazyDataSource> previousSources) {
+        if (imageIndex < 0) {
+            return;
+        }
+        ImageFrameStorage storage = manager.getStorage();
+        for (LazyDataSource source : previousSources) {
+            String fileName = source.getFileName();
+            if (fileName.equals(FRAME_PACK_FILE_NAME) || !source.equals(storage.getSource(imageIndex, fileName))) {
+                continue;
+            }
+            try {
+                source.delete();
+            } catch (IOException e) {
+                Bukkit.getConsoleSender().sendMessage(ChatColor.RED + "[ImageFrame] Unable to delete superseded frame " + fileName + " of ImageMap " + imageIndex);
+                e.printStackTrace();
+            }
         }
     }
 
@@ -236,6 +417,11 @@ public class URLAnimatedImageMap extends URLImageMap {
 
     @Override
     public byte[] getRawAnimationColors(int currentTick, int index) {
+        OffHeapAnimationColors offHeapColors = this.offHeapColors;
+        if (offHeapColors != null) {
+            return offHeapColors.get(index, currentTick % offHeapColors.getFrameCount(index));
+        }
+        byte[][][] cachedColors = this.cachedColors;
         if (cachedColors == null) {
             return null;
         }
@@ -248,6 +434,7 @@ public class URLAnimatedImageMap extends URLImageMap {
 
     @Override
     public int getAnimationFakeMapId(int currentTick, int index, boolean lookbehind) {
+        int[][] fakeMapIds = lookbehind ? resolvedFakeMapIds : this.fakeMapIds;
         if (fakeMapIds == null) {
             return -1;
         }
@@ -255,22 +442,16 @@ public class URLAnimatedImageMap extends URLImageMap {
         if (mapIds == null) {
             return -1;
         }
-        int mapIdIndex = currentTick % mapIds.length;
-        int mapId = mapIds[mapIdIndex];
-        if (mapId >= 0 || !lookbehind) {
-            return mapId;
-        }
-        for (; mapIdIndex >= 0; mapIdIndex--) {
-            mapId = mapIds[mapIdIndex];
-            if (mapId >= 0) {
-                return mapId;
-            }
-        }
-        return mapId;
+        return mapIds[currentTick % mapIds.length];
     }
 
     @Override
     public void sendAnimationFakeMaps(Collection<? extends Player> players, MapPacketSentCallback completionCallback) {
+        sendAnimationFakeMaps(players, null, completionCallback);
+    }
+
+    @Override
+    public void sendAnimationFakeMaps(Collection<? extends Player> players, Location location, MapPacketSentCallback completionCallback) {
         int length = getSequenceLength();
         for (int currentTick = 0; currentTick < length; currentTick++) {
             for (int index = 0; index < fakeMapIds.length; index++) {
@@ -278,7 +459,7 @@ public class URLAnimatedImageMap extends URLImageMap {
                 if (mapIds != null && currentTick < mapIds.length) {
                     int mapId = mapIds[currentTick];
                     if (mapId >= 0) {
-                        MapUtils.sendImageMap(mapId, mapViews.get(index), currentTick, players, completionCallback);
+                        MapUtils.sendImageMap(mapId, mapViews.get(index), currentTick, players, completionCallback, MapPacketPriority.BACKGROUND, location);
                     }
                 }
             }
@@ -308,6 +489,20 @@ public class URLAnimatedImageMap extends URLImageMap {
         return null;
     }
 
+    /**
+     * @return the container all frames are stored in, or null if the frames are stored as individual images
+     */
+    public PackedImageContainer getPackedImageContainer() {
+        if (cachedImages.length == 0 || cachedImages[0] == null || cachedImages[0].length == 0) {
+            return null;
+        }
+        LazyMappedBufferedImage image = cachedImages[0][0];
+        if (!(image instanceof PackedLazyMappedBufferedImage)) {
+            return null;
+        }
+        return ((PackedLazyMappedBufferedImage) image).getContainer();
+    }
+
     @Override
     public int getSequenceLength() {
         return cachedImages[0].length;
@@ -352,31 +547,51 @@ public class URLAnimatedImageMap extends URLImageMap {
         }
         json.add("hasAccess", accessJson);
         json.addProperty("creationTime", creationTime);
+        PackedImageContainer container = getPackedImageContainer();
+        if (container != null) {
+            LazyDataSource source = storage.getSource(imageIndex, FRAME_PACK_FILE_NAME);
+            if (saveAsCopy || !container.canSetSource(source)) {
+                container.saveCopy(source);
+            } else {
+                container.setSource(source);
+            }
+            json.addProperty("framePack", FRAME_PACK_FILE_NAME);
+            if (container.getId() != null) {
+                json.addProperty("framePackId", container.getId().toString());
+            }
+        }
         JsonArray mapDataJson = new JsonArray();
         int u = 0;
         for (int i = 0; i < mapViews.size(); i++) {
             JsonObject dataJson = new JsonObject();
             dataJson.addProperty("mapid", mapIds.get(i));
             JsonArray framesArray = new JsonArray();
-            for (LazyMappedBufferedImage image : cachedImages[i]) {
-                int index = u++;
-                LazyDataSource source = storage.getSource(imageIndex, index + ".png");
-                if (image.canSetSource(source)) {
-                    if (saveAsCopy) {
-                        image.saveCopy(source);
+            if (container != null) {
+                for (LazyMappedBufferedImage image : cachedImages[i]) {
+                    framesArray.add(((PackedLazyMappedBufferedImage) image).getIndex());
+                }
+                dataJson.add("frames", framesArray);
+            } else {
+                for (LazyMappedBufferedImage image : cachedImages[i]) {
+                    int index = u++;
+                    LazyDataSource source = storage.getSource(imageIndex, index + ".png");
+                    if (image.canSetSource(source)) {
+                        if (saveAsCopy) {
+                            image.saveCopy(source);
+                        } else {
+                            image.setSource(source);
+                        }
+                        framesArray.add(index + ".png");
                     } else {
-                        image.setSource(source);
-                    }
-                    framesArray.add(index + ".png");
-                } else {
-                    String fileName = image.getSource().getFileName();
-                    if (saveAsCopy) {
-                        image.saveCopy(source.withFileName(fileName));
+                        String fileName = image.getSource().getFileName();
+                        if (saveAsCopy) {
+                            image.saveCopy(source.withFileName(fileName));
+                        }
+                        framesArray.add(fileName);
                     }
-                    framesArray.add(fileName);
                 }
+                dataJson.add("images", framesArray);
             }
-            dataJson.add("images", framesArray);
             JsonArray markerArray = new JsonArray();
             for (Map.Entry<String, MapCursor> entry : mapMarkers.get(i).entrySet()) {
                 MapCursor marker = entry.getValue();
@@ -417,6 +632,11 @@ public class URLAnimatedImageMap extends URLImageMap {
         public MutablePair<byte[], Collection<MapCursor>> renderMap(MapView mapView, Player player) {
             return renderMap(mapView, parent.getCurrentPositionInSequenceWithOffset(), player);
         }
+
+        @Override
+        public int getSharedPacketFrame(MapView mapView, int currentTick) {
+            return (currentTick < 0 ? parent.getCurrentPositionInSequenceWithOffset() : currentTick) % parent.getSequenceLength();
+        }
     }
 
 }
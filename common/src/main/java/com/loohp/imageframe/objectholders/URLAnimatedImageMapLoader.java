@@ -141,6 +141,14 @@ public class URLAnimatedImageMapLoader extends ImageMapLoader<URLAnimatedImageMa
         LazyMappedBufferedImage[][] cachedImages = new LazyMappedBufferedImage[mapDataJson.size()][];
         List<Map<String, MapCursor>> markers = new ArrayList<>(mapDataJson.size());
         World world = MapUtils.getMainWorld();
+        PackedImageContainer framePack;
+        if (json.has("framePack")) {
+            UUID framePackId = json.has("framePackId") ? UUID.fromString(json.get("framePackId").getAsString()) : null;
+            framePack = PackedImageContainer.fromSource(manager.getStorage().getSource(imageIndex, json.get("framePack").getAsString()), framePackId);
+        } else {
+            framePack = null;
+        }
+        Map<Integer, PackedLazyMappedBufferedImage> packedImages = new HashMap<>();
         int i = 0;
         for (JsonElement dataJson : mapDataJson) {
             JsonObject jsonObject = dataJson.getAsJsonObject();
@@ -150,11 +158,21 @@ public class URLAnimatedImageMapLoader extends ImageMapLoader<URLAnimatedImageMa
             } else {
                 mapViewsFuture.add(MapUtils.createMap(world));
             }
-            JsonArray framesArray = jsonObject.get("images").getAsJsonArray();
-            LazyMappedBufferedImage[] images = new LazyMappedBufferedImage[framesArray.size()];
-            int u = 0;
-            for (JsonElement element : framesArray) {
-                images[u++] = StandardLazyMappedBufferedImage.fromSource(manager.getStorage().getSource(imageIndex, element.getAsString()));
+            LazyMappedBufferedImage[] images;
+            if (framePack != null) {
+                JsonArray framesArray = jsonObject.get("frames").getAsJsonArray();
+                images = new LazyMappedBufferedImage[framesArray.size()];
+                int u = 0;
+                for (JsonElement element : framesArray) {
+                    images[u++] = packedImages.computeIfAbsent(element.getAsInt(), k -> new PackedLazyMappedBufferedImage(framePack, k));
+                }
+            } else {
+                JsonArray framesArray = jsonObject.get("images").getAsJsonArray();
+                images = new LazyMappedBufferedImage[framesArray.size()];
+                int u = 0;
+                for (JsonElement element : framesArray) {
+                    images[u++] = StandardLazyMappedBufferedImage.fromSource(manager.getStorage().getSource(imageIndex, element.getAsString()));
+                }
             }
             Map<String, MapCursor> mapCursors = new ConcurrentHashMap<>();
             if (jsonObject.has("markers")) {
@@ -99,6 +99,21 @@ public class URLStaticImageMap extends URLImageMap {
         cachedColors = null;
     }
 
+    @Override
+    public long getColorCacheSize() {
+        byte[][] cachedColors = this.cachedColors;
+        if (cachedColors == null) {
+            return 0;
+        }
+        long size = 0;
+        for (byte[] data : cachedColors) {
+            if (data != null) {
+                size += data.length;
+            }
+        }
+        return size;
+    }
+
     @Override
     public ImageMap deepClone(String name, UUID creator) throws Exception {
         URLStaticImageMap imageMap = ((URLStaticImageMapLoader) loader).create(new URLImageMapCreateInfo(manager, name, url, width, height, ditheringType, creator)).get();
@@ -198,6 +213,11 @@ public class URLStaticImageMap extends URLImageMap {
             this.parent = parent;
         }
 
+        @Override
+        public int getSharedPacketFrame(MapView mapView, int currentTick) {
+            return 0;
+        }
+
         @Override
         public MutablePair<byte[], Collection<MapCursor>> renderMap(MapView mapView, Player player) {
             byte[] colors;
@@ -26,11 +26,11 @@ import com.google.gson.JsonObject;
 import com.loohp.imageframe.objectholders.IFPlayer;
 import com.loohp.imageframe.objectholders.IFPlayerManager;
 import com.loohp.imageframe.objectholders.ImageMap;
-import com.loohp.imageframe.objectholders.ImageMapLoaders;
 import com.loohp.imageframe.objectholders.ImageMapManager;
 import com.loohp.imageframe.objectholders.LazyDataSource;
 import com.loohp.imageframe.objectholders.MutablePair;
 import com.loohp.imageframe.utils.FileUtils;
+import com.loohp.imageframe.utils.ThrowingSupplier;
 import net.md_5.bungee.api.ChatColor;
 import org.bukkit.Bukkit;
 
@@ -45,17 +45,19 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.IntConsumer;
 
@@ -65,12 +67,14 @@ public class FileImageFrameStorage implements ImageFrameStorage {
 
     private final File imageMapFolder;
     private final File playerDataFolder;
+    private final File localCacheFolder;
     private final AtomicInteger mapIndexCounter;
     private final UUID instanceId;
 
-    public FileImageFrameStorage(File imageMapFolder, File playerDataFolder) {
+    public FileImageFrameStorage(File imageMapFolder, File playerDataFolder, File localCacheFolder) {
         this.imageMapFolder = imageMapFolder;
         this.playerDataFolder = playerDataFolder;
+        this.localCacheFolder = localCacheFolder;
         this.mapIndexCounter = new AtomicInteger(0);
 
         this.imageMapFolder.mkdirs();
@@ -118,6 +122,11 @@ public class FileImageFrameStorage implements ImageFrameStorage {
         return new FileLazyDataSource(this, imageIndex, fileName);
     }
 
+    @Override
+    public File getLocalCacheFolder(int imageIndex) {
+        return new File(localCacheFolder, String.valueOf(imageIndex));
+    }
+
     @Override
     public Set<Integer> getAllImageIndexes() {
         imageMapFolder.mkdirs();
@@ -170,20 +179,20 @@ public class FileImageFrameStorage implements ImageFrameStorage {
         if (folder.exists() && folder.isDirectory()) {
             FileUtils.removeFolderRecursively(folder);
         }
+        FileUtils.removeFolderRecursively(getLocalCacheFolder(imageIndex));
     }
 
     @Override
-    public List<MutablePair<String, Future<? extends ImageMap>>> loadMaps(ImageMapManager manager, Set<Integer> deletedMapIds, IFPlayerManager ifPlayerManager) {
+    public List<MutablePair<String, ThrowingSupplier<JsonObject>>> loadMaps(ImageMapManager manager, Set<Integer> deletedMapIds, IFPlayerManager ifPlayerManager) {
         imageMapFolder.mkdirs();
         File[] files = imageMapFolder.listFiles();
         Arrays.sort(files, FileUtils.BY_NUMBER_THEN_STRING);
-        List<MutablePair<String, Future<? extends ImageMap>>> futures = new LinkedList<>();
+        List<MutablePair<String, ThrowingSupplier<JsonObject>>> futures = new ArrayList<>(files.length);
         for (File file : files) {
             if (file.isDirectory()) {
                 try {
                     int imageIndex = Integer.parseInt(file.getName());
-                    JsonObject json = loadImageMapData(imageIndex);
-                    futures.add(new MutablePair<>(file.getAbsolutePath(), ImageMapLoaders.load(manager, json)));
+                    futures.add(new MutablePair<>(file.getAbsolutePath(), () -> loadImageMapData(imageIndex)));
                 } catch (Throwable e) {
                     Bukkit.getConsoleSender().sendMessage(ChatColor.RED + "[ImageFrame] Unable to load ImageMap data in " + file.getAbsolutePath());
                     e.printStackTrace();
@@ -325,6 +334,21 @@ public class FileImageFrameStorage implements ImageFrameStorage {
             }
         }
 
+        @Override
+        public byte[] loadRange(long offset, int length) throws IOException {
+            File folder = new File(storage.imageMapFolder, String.valueOf(imageIndex));
+            File file = new File(folder, fileName);
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate(length);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, offset + buffer.position()) < 0) {
+                        throw new EOFException("Unexpected end of " + file.getAbsolutePath());
+                    }
+                }
+                return buffer.array();
+            }
+        }
+
         @Override
         public void save(Writer writer) throws IOException {
             File folder = new File(storage.imageMapFolder, String.valueOf(imageIndex));
@@ -337,6 +361,12 @@ public class FileImageFrameStorage implements ImageFrameStorage {
             Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
         }
 
+        @Override
+        public void delete() throws IOException {
+            File folder = new File(storage.imageMapFolder, String.valueOf(imageIndex));
+            Files.deleteIfExists(new File(folder, fileName).toPath());
+        }
+
         public int getImageIndex() {
             return imageIndex;
         }
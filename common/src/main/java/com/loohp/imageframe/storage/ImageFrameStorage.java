@@ -26,12 +26,13 @@ import com.loohp.imageframe.objectholders.ImageMap;
 import com.loohp.imageframe.objectholders.ImageMapManager;
 import com.loohp.imageframe.objectholders.LazyDataSource;
 import com.loohp.imageframe.objectholders.MutablePair;
+import com.loohp.imageframe.utils.ThrowingSupplier;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.Future;
 import java.util.function.IntConsumer;
 
 public interface ImageFrameStorage extends AutoCloseable {
@@ -42,6 +43,8 @@ public interface ImageFrameStorage extends AutoCloseable {
 
     LazyDataSource getSource(int imageIndex, String fileName);
 
+    File getLocalCacheFolder(int imageIndex);
+
     Set<Integer> getAllImageIndexes();
 
     boolean hasImageMapData(int imageIndex);
@@ -52,7 +55,11 @@ public interface ImageFrameStorage extends AutoCloseable {
 
     void deleteMap(int imageIndex);
 
-    List<MutablePair<String, Future<? extends ImageMap>>> loadMaps(ImageMapManager manager, Set<Integer> deletedMapIds, IFPlayerManager ifPlayerManager);
+    /**
+     * @return a task for every stored image map, which reads its data when run,
+     * the tasks are run by the caller and may be run concurrently
+     */
+    List<MutablePair<String, ThrowingSupplier<JsonObject>>> loadMaps(ImageMapManager manager, Set<Integer> deletedMapIds, IFPlayerManager ifPlayerManager);
 
     void saveImageMapData(int imageIndex, JsonObject json) throws IOException;
 
@@ -29,11 +29,12 @@ import com.loohp.imageframe.ImageFrame;
 import com.loohp.imageframe.objectholders.IFPlayer;
 import com.loohp.imageframe.objectholders.IFPlayerManager;
 import com.loohp.imageframe.objectholders.ImageMap;
-import com.loohp.imageframe.objectholders.ImageMapLoaders;
 import com.loohp.imageframe.objectholders.ImageMapManager;
 import com.loohp.imageframe.objectholders.LazyDataSource;
 import com.loohp.imageframe.objectholders.MutablePair;
+import com.loohp.imageframe.utils.FileUtils;
 import com.loohp.imageframe.utils.JsonUtils;
+import com.loohp.imageframe.utils.ThrowingSupplier;
 import com.loohp.platformscheduler.ScheduledTask;
 import com.loohp.platformscheduler.Scheduler;
 import com.zaxxer.hikari.HikariConfig;
@@ -44,8 +45,10 @@ import org.bukkit.Bukkit;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
@@ -58,6 +61,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -67,7 +71,6 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.UUID;
-import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
@@ -223,6 +226,11 @@ public class JdbcImageFrameStorage implements ImageFrameStorage {
         return new MySqlLazyDataSource(this, imageIndex, fileName);
     }
 
+    @Override
+    public File getLocalCacheFolder(int imageIndex) {
+        return new File(localDataFolder, "cache/" + imageIndex);
+    }
+
     @Override
     public Set<Integer> getAllImageIndexes() {
         String sql = "SELECT IMAGE_INDEX FROM IMAGE_MAPS";
@@ -365,6 +373,7 @@ public class JdbcImageFrameStorage implements ImageFrameStorage {
             Bukkit.getConsoleSender().sendMessage(ChatColor.RED + "[ImageFrame] Error while deleting ImageMap " + imageIndex + " from database.");
             e.printStackTrace();
         }
+        FileUtils.removeFolderRecursively(getLocalCacheFolder(imageIndex));
     }
 
     @Override
@@ -395,8 +404,8 @@ public class JdbcImageFrameStorage implements ImageFrameStorage {
     }
 
     @Override
-    public List<MutablePair<String, Future<? extends ImageMap>>> loadMaps(ImageMapManager imageMapManager, Set<Integer> deletedMapIds, IFPlayerManager ifPlayerManager) {
-        List<MutablePair<String, Future<? extends ImageMap>>> futures = new ArrayList<>();
+    public List<MutablePair<String, ThrowingSupplier<JsonObject>>> loadMaps(ImageMapManager imageMapManager, Set<Integer> deletedMapIds, IFPlayerManager ifPlayerManager) {
+        List<MutablePair<String, ThrowingSupplier<JsonObject>>> futures = new ArrayList<>();
 
         String sqlMaps = "SELECT BASE.IMAGE_INDEX AS IMAGE_INDEX, BASE.DATA AS BASE_DATA, INST.DATA AS INST_DATA FROM IMAGE_MAPS BASE LEFT JOIN INSTANCE_IMAGE_MAP_DATA INST ON INST.IMAGE_INDEX = BASE.IMAGE_INDEX AND INST.INSTANCE_ID = ? ORDER BY BASE.IMAGE_INDEX ASC";
         try (
@@ -410,15 +419,14 @@ public class JdbcImageFrameStorage implements ImageFrameStorage {
                     int imageIndex = rs.getInt("IMAGE_INDEX");
 
                     String baseJsonString = rs.getString("BASE_DATA");
-                    JsonObject baseJson = GSON.fromJson(baseJsonString, JsonObject.class);
-
                     String instanceJsonString = rs.getString("INST_DATA");
-                    JsonObject instanceJson = instanceJsonString == null ? new JsonObject() : GSON.fromJson(instanceJsonString, JsonObject.class);
 
-                    JsonObject mergedJson = JsonUtils.merge(baseJson, instanceJson).getAsJsonObject();
+                    futures.add(new MutablePair<>("database:" + imageIndex, () -> {
+                        JsonObject baseJson = GSON.fromJson(baseJsonString, JsonObject.class);
+                        JsonObject instanceJson = instanceJsonString == null ? new JsonObject() : GSON.fromJson(instanceJsonString, JsonObject.class);
 
-                    Future<? extends ImageMap> future = ImageMapLoaders.load(imageMapManager, mergedJson);
-                    futures.add(new MutablePair<>("database:" + imageIndex, future));
+                        return JsonUtils.merge(baseJson, instanceJson).getAsJsonObject();
+                    }));
                 }
             }
         } catch (Exception e) {
@@ -731,8 +739,15 @@ public class JdbcImageFrameStorage implements ImageFrameStorage {
         dataSource.close();
     }
 
+    /**
+     * Data larger than {@link #CHUNK_SIZE} is split across rows so that no row exceeds the packet size limit
+     * of the server, the first chunk keeps the file name and the following ones have their number appended.
+     */
     public static class MySqlLazyDataSource implements LazyDataSource {
 
+        public static final int CHUNK_SIZE = 1024 * 1024;
+        public static final String CHUNK_SEPARATOR = "#";
+
         private final JdbcImageFrameStorage storage;
         private final int imageIndex;
         private final String fileName;
@@ -743,29 +758,81 @@ public class JdbcImageFrameStorage implements ImageFrameStorage {
             this.fileName = fileName;
         }
 
-        @Override
-        public <T> T load(Reader<T> reader) throws IOException {
+        private String getChunkFileName(int chunk) {
+            return chunk == 0 ? fileName : fileName + CHUNK_SEPARATOR + chunk;
+        }
+
+        private byte[] loadChunk(Connection connection, int chunk) throws SQLException {
             String sql = "SELECT IMAGE FROM IMAGE_MAP_IMAGES WHERE IMAGE_INDEX = ? AND FILE_NAME = ?";
-            try (
-                Connection connection = storage.getDataSource().getConnection();
-                PreparedStatement ps = connection.prepareStatement(sql);
-            ) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
                 ps.setInt(1, imageIndex);
-                ps.setString(2, fileName);
+                ps.setString(2, getChunkFileName(chunk));
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getBytes("IMAGE") : null;
+                }
+            }
+        }
+
+        private byte[] loadChunkRange(Connection connection, int chunk, int offset, int length) throws SQLException {
+            String sql = "SELECT SUBSTRING(IMAGE, ?, ?) AS IMAGE FROM IMAGE_MAP_IMAGES WHERE IMAGE_INDEX = ? AND FILE_NAME = ?";
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setInt(1, offset + 1);
+                ps.setInt(2, length);
+                ps.setInt(3, imageIndex);
+                ps.setString(4, getChunkFileName(chunk));
                 try (ResultSet rs = ps.executeQuery()) {
-                    if (!rs.next()) {
-                        return null;
+                    return rs.next() ? rs.getBytes("IMAGE") : null;
+                }
+            }
+        }
+
+        private void deleteChunks(Connection connection, int fromChunk) throws SQLException {
+            String sql = "DELETE FROM IMAGE_MAP_IMAGES WHERE IMAGE_INDEX = ? AND FILE_NAME = ?";
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                for (int chunk = fromChunk; ; chunk++) {
+                    ps.setInt(1, imageIndex);
+                    ps.setString(2, getChunkFileName(chunk));
+                    if (ps.executeUpdate() <= 0) {
+                        break;
                     }
-                    byte[] bytes = rs.getBytes("IMAGE");
-                    if (bytes == null || bytes.length == 0) {
-                        return null;
+                }
+            }
+        }
+
+        @Override
+        public <T> T load(Reader<T> reader) throws IOException {
+            try (Connection connection = storage.getDataSource().getConnection()) {
+                byte[] bytes = loadChunk(connection, 0);
+                if (bytes == null || bytes.length == 0) {
+                    return null;
+                }
+                return reader.read(new ChunkInputStream(connection, bytes));
+            } catch (SQLException e) {
+                throw new IOException("Unable to load image data for imageIndex=" + imageIndex + ", fileName=" + fileName, e);
+            }
+        }
+
+        @Override
+        public byte[] loadRange(long offset, int length) throws IOException {
+            byte[] bytes = new byte[length];
+            try (Connection connection = storage.getDataSource().getConnection()) {
+                int read = 0;
+                while (read < length) {
+                    long position = offset + read;
+                    int chunk = (int) (position / CHUNK_SIZE);
+                    int chunkOffset = (int) (position % CHUNK_SIZE);
+                    int chunkLength = Math.min(length - read, CHUNK_SIZE - chunkOffset);
+                    byte[] data = loadChunkRange(connection, chunk, chunkOffset, chunkLength);
+                    if (data == null || data.length < chunkLength) {
+                        throw new EOFException("Unexpected end of image data for imageIndex=" + imageIndex + ", fileName=" + fileName);
                     }
-                    ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
-                    return reader.read(inputStream);
+                    System.arraycopy(data, 0, bytes, read, chunkLength);
+                    read += chunkLength;
                 }
             } catch (SQLException e) {
                 throw new IOException("Unable to load image data for imageIndex=" + imageIndex + ", fileName=" + fileName, e);
             }
+            return bytes;
         }
 
         @Override
@@ -775,20 +842,35 @@ public class JdbcImageFrameStorage implements ImageFrameStorage {
                 ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
                 writer.write(outputStream);
                 byte[] bytes = outputStream.toByteArray();
-                try (
-                    Connection connection = storage.getDataSource().getConnection();
-                    PreparedStatement ps = connection.prepareStatement(sql);
-                ) {
-                    ps.setInt(1, imageIndex);
-                    ps.setString(2, fileName);
-                    ps.setBytes(3, bytes);
-                    ps.executeUpdate();
+                int chunks = Math.max(1, (bytes.length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+                try (Connection connection = storage.getDataSource().getConnection()) {
+                    connection.setAutoCommit(false);
+                    try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                        // Not batched, so that every chunk is sent on its own
+                        for (int i = 0; i < chunks; i++) {
+                            ps.setInt(1, imageIndex);
+                            ps.setString(2, getChunkFileName(i));
+                            ps.setBytes(3, Arrays.copyOfRange(bytes, i * CHUNK_SIZE, Math.min(bytes.length, (i + 1) * CHUNK_SIZE)));
+                            ps.executeUpdate();
+                        }
+                    }
+                    deleteChunks(connection, chunks);
+                    connection.commit();
                 }
             } catch (SQLException e) {
                 throw new IOException("Unable to save image data for imageIndex=" + imageIndex + ", fileName=" + fileName, e);
             }
         }
 
+        @Override
+        public void delete() throws IOException {
+            try (Connection connection = storage.getDataSource().getConnection()) {
+                deleteChunks(connection, 0);
+            } catch (SQLException e) {
+                throw new IOException("Unable to delete image data for imageIndex=" + imageIndex + ", fileName=" + fileName, e);
+            }
+        }
+
         public int getImageIndex() {
             return imageIndex;
         }
@@ -814,6 +896,74 @@ public class JdbcImageFrameStorage implements ImageFrameStorage {
         public int hashCode() {
             return Objects.hash(storage.dataSource, imageIndex, fileName);
         }
+
+        /**
+         * Reads the following chunks only when the reader gets to them, a chunk shorter than
+         * {@link #CHUNK_SIZE} is the last one.
+         */
+        private class ChunkInputStream extends InputStream {
+
+            private final Connection connection;
+            private ByteArrayInputStream current;
+            private int currentLength;
+            private int chunk;
+
+            private ChunkInputStream(Connection connection, byte[] first) {
+                this.connection = connection;
+                this.current = new ByteArrayInputStream(first);
+                this.currentLength = first.length;
+                this.chunk = 0;
+            }
+
+            private boolean nextChunk() throws IOException {
+                if (currentLength < CHUNK_SIZE) {
+                    return false;
+                }
+                byte[] bytes;
+                try {
+                    bytes = loadChunk(connection, ++chunk);
+                } catch (SQLException e) {
+                    throw new IOException("Unable to load image data for imageIndex=" + imageIndex + ", fileName=" + fileName, e);
+                }
+                if (bytes == null) {
+                    currentLength = 0;
+                    return false;
+                }
+                current = new ByteArrayInputStream(bytes);
+                currentLength = bytes.length;
+                return true;
+            }
+
+            @Override
+            public int read() throws IOException {
+                int b;
+                while ((b = current.read()) < 0) {
+                    if (!nextChunk()) {
+                        return -1;
+                    }
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                int read;
+                while ((read = current.read(b, off, len)) < 0) {
+                    if (!nextChunk()) {
+                        return -1;
+                    }
+                }
+                return read;
+            }
+
+            @Override
+            public int available() {
+                return current.available();
+            }
+        }
     }
 
     public static class ImageMapUpdateInfo {
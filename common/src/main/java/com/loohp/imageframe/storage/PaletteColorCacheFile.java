@@ -0,0 +1,194 @@
+/*
+ * This file is part of ImageFrame.
+ *
+ * Copyright (C) 2025. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2025. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.imageframe.storage;
+
+import com.loohp.imageframe.objectholders.OffHeapAnimationColors;
+import com.loohp.imageframe.utils.MapUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Local cache file of already dithered map palette bytes of an animated image map,
+ * so that loading its color cache does not need to decode and dither every frame again.
+ * <p>
+ * The file is identified by a key describing everything the bytes were derived from,
+ * a file with a different key is stale and deleted when it is read. Frames that repeat the previous
+ * frame of the same map are stored as a single flag instead of a full map of bytes.
+ */
+public class PaletteColorCacheFile {
+
+    public static final String FILE_NAME = "colors.cache";
+    public static final int MAGIC = 0x49464343;
+    public static final int VERSION = 1;
+
+    private static final int MAP_SIZE = MapUtils.MAP_WIDTH * MapUtils.MAP_WIDTH;
+
+    /**
+     * Reads the cached colors in the same layout as they were written,
+     * repeated frames are null.
+     *
+     * @return the cached colors or null if the file does not exist, is unreadable or has a different key
+     */
+    public static byte[][][] read(File file, String key, int maps, int frames) {
+        int[][] offsets = new int[maps][frames];
+        ByteBuffer buffer = map(file, key, offsets);
+        if (buffer == null) {
+            return null;
+        }
+        byte[][][] colors = new byte[maps][frames][];
+        for (int i = 0; i < maps; i++) {
+            for (int u = 0; u < frames; u++) {
+                int offset = offsets[i][u];
+                if (offset >= 0) {
+                    byte[] data = new byte[MAP_SIZE];
+                    buffer.position(offset);
+                    buffer.get(data);
+                    colors[i][u] = data;
+                }
+            }
+        }
+        return colors;
+    }
+
+    /**
+     * Maps the cached colors into memory without copying them onto the heap.
+     *
+     * @return the cached colors or null if the file does not exist, is unreadable or has a different key
+     */
+    public static OffHeapAnimationColors mapOffHeap(File file, String key, int maps, int frames) {
+        int[][] offsets = new int[maps][frames];
+        ByteBuffer buffer = map(file, key, offsets);
+        if (buffer == null) {
+            return null;
+        }
+        return OffHeapAnimationColors.wrap(buffer, offsets);
+    }
+
+    private static ByteBuffer map(File file, String key, int[][] offsets) {
+        if (!file.isFile()) {
+            return null;
+        }
+        ByteBuffer buffer = mapIfValid(file, key, offsets);
+        if (buffer == null) {
+            delete(file);
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer mapIfValid(File file, String key, int[][] offsets) {
+        int maps = offsets.length;
+        int frames = maps == 0 ? 0 : offsets[0].length;
+        if (frames <= 0) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            byte[] keyBytes = new byte[buffer.getInt()];
+            buffer.get(keyBytes);
+            if (!key.equals(new String(keyBytes, StandardCharsets.UTF_8))) {
+                return null;
+            }
+            if (buffer.getInt() != maps || buffer.getInt() != frames) {
+                return null;
+            }
+            int offset = buffer.position() + maps * frames;
+            for (int i = 0; i < maps; i++) {
+                for (int u = 0; u < frames; u++) {
+                    if (buffer.get() != 0) {
+                        offsets[i][u] = offset;
+                        offset += MAP_SIZE;
+                    } else if (u == 0) {
+                        return null;
+                    } else {
+                        offsets[i][u] = -1;
+                    }
+                }
+            }
+            if (offset > buffer.limit()) {
+                return null;
+            }
+            return buffer;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Deletes the cache file if it exists, for when its image map is no longer cached.
+     */
+    public static void delete(File file) {
+        if (file.isFile() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * Writes the colors to a temporary file and moves it in place, so that a partially
+     * written file is never read. Failing to write the cache is not an error.
+     */
+    public static void write(File file, String key, byte[][][] colors) {
+        File folder = file.getParentFile();
+        File temp = new File(folder, file.getName() + ".tmp");
+        try {
+            folder.mkdirs();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 65536))) {
+                byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                int frames = colors.length == 0 ? 0 : colors[0].length;
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(keyBytes.length);
+                out.write(keyBytes);
+                out.writeInt(colors.length);
+                out.writeInt(frames);
+                for (byte[][] data : colors) {
+                    for (byte[] frame : data) {
+                        out.writeByte(frame == null ? 0 : 1);
+                    }
+                }
+                for (byte[][] data : colors) {
+                    for (byte[] frame : data) {
+                        if (frame != null) {
+                            out.write(frame);
+                        }
+                    }
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            temp.delete();
+        }
+    }
+
+}
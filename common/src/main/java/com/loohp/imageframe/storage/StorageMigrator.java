@@ -44,7 +44,7 @@ public class StorageMigrator implements AutoCloseable {
     }
 
     public void migrateImageMaps() throws Exception {
-        for (ImageMap imageMap : imageMapManager.getMaps()) {
+        for (ImageMap imageMap : imageMapManager.getAllMaps()) {
             imageMap.save(targetStorage, true);
         }
     }
@@ -24,6 +24,7 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalNotification;
 import com.loohp.imageframe.ImageFrame;
+import com.loohp.imageframe.objectholders.DispatchMode;
 import com.loohp.imageframe.utils.FileUtils;
 import com.loohp.imageframe.utils.JarUtils;
 import com.loohp.imageframe.utils.SizeLimitedByteArrayOutputStream;
@@ -32,7 +33,9 @@ import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import com.twelvemonkeys.net.MIMEUtil;
+import net.md_5.bungee.api.ChatColor;
 import org.apache.commons.fileupload.MultipartStream;
+import org.bukkit.Bukkit;
 
 import java.io.File;
 import java.io.IOException;
@@ -49,21 +52,28 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class ImageUploadManager implements AutoCloseable {
 
     public static final long EXPIRATION = TimeUnit.MINUTES.toMillis(5);
+    public static final int DEFAULT_SERVER_THREADS = 8;
 
     private final HttpServer server;
+    private final ExecutorService serverExecutor;
     private final File webRootDir;
     private final File uploadDir;
     private final Map<UUID, PendingUpload> pendingUploads;
     private final AtomicLong imagesUploadedCounter;
 
-    public ImageUploadManager(boolean enabled, String host, int port) {
+    /**
+     * @param threadMode how requests are handled, only {@link DispatchMode#POOL} and {@link DispatchMode#VIRTUAL_THREADS} apply,
+     * {@link DispatchMode#EVENT_LOOP} is logged and uses {@link DispatchMode#POOL}
+     * @param threads the number of threads handling requests in a pool, 0 or less for {@link #DEFAULT_SERVER_THREADS}
+     */
+    public ImageUploadManager(boolean enabled, String host, int port, DispatchMode threadMode, int threads) {
         this.webRootDir = new File(ImageFrame.plugin.getDataFolder(), "upload/web");
         this.uploadDir = new File(ImageFrame.plugin.getDataFolder(), "upload/images");
         this.imagesUploadedCounter = new AtomicLong(0);
@@ -82,6 +92,7 @@ public class ImageUploadManager implements AutoCloseable {
         this.pendingUploads = cache.asMap();
 
         HttpServer server = null;
+        ExecutorService serverExecutor = null;
         try {
             FileUtils.removeFolderRecursively(uploadDir);
             if (!uploadDir.exists()) {
@@ -97,7 +108,12 @@ public class ImageUploadManager implements AutoCloseable {
                 server = HttpServer.create(new InetSocketAddress(host, port), 8);
                 server.createContext("/", new FileHandler());
                 server.createContext("/upload", new UploadHandler());
-                server.setExecutor(Executors.newFixedThreadPool(8));
+                if (threadMode == DispatchMode.EVENT_LOOP) {
+                    Bukkit.getConsoleSender().sendMessage(ChatColor.YELLOW + "[ImageFrame] EVENT_LOOP is not supported as the upload server ThreadMode, using POOL instead");
+                    threadMode = DispatchMode.POOL;
+                }
+                serverExecutor = threadMode.createExecutorService("ImageFrame Upload Server Thread #%d", threads <= 0 ? DEFAULT_SERVER_THREADS : threads);
+                server.setExecutor(serverExecutor);
                 server.start();
             }
         } catch (BindException e) {
@@ -106,6 +122,7 @@ public class ImageUploadManager implements AutoCloseable {
             new RuntimeException("Unable to start ImageFrame upload server", e).printStackTrace();
         }
         this.server = server;
+        this.serverExecutor = serverExecutor;
     }
 
     public PendingUpload newPendingUpload(UUID user) {
@@ -140,6 +157,9 @@ public class ImageUploadManager implements AutoCloseable {
         if (server != null) {
             server.stop(0);
         }
+        if (serverExecutor != null) {
+            serverExecutor.shutdown();
+        }
     }
 
     private class FileHandler implements HttpHandler {
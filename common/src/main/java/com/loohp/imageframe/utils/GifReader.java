@@ -38,16 +38,44 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 
 public class GifReader {
 
     public static Future<List<ImageFrame>> readGif(InputStream stream, long sizeLimit) throws IOException {
+        byte[] targetArray = readFully(stream, sizeLimit);
+        CompletableFuture<List<ImageFrame>> future = new CompletableFuture<>();
+        Scheduler.runTaskAsynchronously(com.loohp.imageframe.ImageFrame.plugin, () -> {
+            List<ThrowingSupplier<List<ImageFrame>>> tries = new ArrayList<>(3);
+            tries.add(() -> readGifMethodMadgag(new ByteArrayInputStream(targetArray)));
+            tries.add(() -> readGifMethodJavaX(new ByteArrayInputStream(targetArray)));
+            tries.add(() -> readGifMethodFallback(new ByteArrayInputStream(targetArray)));
+            try {
+                future.complete(readFirstSuccessful(tries));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Decodes the frames of the gif one at a time as they are iterated, so that only the frame
+     * being composed and the frame it may be restored to are held in memory instead of every frame.
+     * Gifs which cannot be read frame by frame are decoded all at once like {@link #readGif(InputStream, long)}.
+     */
+    public static Iterator<ImageFrame> streamGif(InputStream stream, long sizeLimit) throws IOException {
+        return new StreamingGifIterator(readFully(stream, sizeLimit));
+    }
+
+    private static byte[] readFully(InputStream stream, long sizeLimit) throws IOException {
         ByteArrayOutputStream buffer = new SizeLimitedByteArrayOutputStream(sizeLimit);
         try {
             int nRead;
@@ -58,28 +86,21 @@ public class GifReader {
         } finally {
             stream.close();
         }
+        return buffer.toByteArray();
+    }
 
-        byte[] targetArray = buffer.toByteArray();
-        CompletableFuture<List<ImageFrame>> future = new CompletableFuture<>();
-        Scheduler.runTaskAsynchronously(com.loohp.imageframe.ImageFrame.plugin, () -> {
-            List<ThrowingSupplier<List<ImageFrame>>> tries = new ArrayList<>(3);
-            tries.add(() -> readGifMethodMadgag(new ByteArrayInputStream(targetArray)));
-            tries.add(() -> readGifMethodJavaX(new ByteArrayInputStream(targetArray)));
-            tries.add(() -> readGifMethodFallback(new ByteArrayInputStream(targetArray)));
-            Throwable firstThrowable = null;
-            for (ThrowingSupplier<List<ImageFrame>> task : tries) {
-                try {
-                    future.complete(task.get());
-                    return;
-                } catch (Throwable e) {
-                    if (firstThrowable == null) {
-                        firstThrowable = e;
-                    }
+    private static <T> T readFirstSuccessful(List<ThrowingSupplier<T>> tries) throws Throwable {
+        Throwable firstThrowable = null;
+        for (ThrowingSupplier<T> task : tries) {
+            try {
+                return task.get();
+            } catch (Throwable e) {
+                if (firstThrowable == null) {
+                    firstThrowable = e;
                 }
             }
-            future.completeExceptionally(firstThrowable);
-        });
-        return future;
+        }
+        throw firstThrowable;
     }
 
     private static List<ImageFrame> readGifMethodMadgag(InputStream stream) throws IOException {
@@ -98,40 +119,105 @@ public class GifReader {
     }
 
     private static List<ImageFrame> readGifMethodJavaX(InputStream input) throws IOException {
-        ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
-        ImageInputStream stream = ImageIO.createImageInputStream(input);
-        reader.setInput(stream);
+        List<ImageFrame> frames = new ArrayList<>();
+        try {
+            new JavaXGifFrameIterator(input).forEachRemaining(frames::add);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return frames;
+    }
 
-        List<ImageFrame> frames = new LinkedList<>();
+    private static List<ImageFrame> readGifMethodFallback(InputStream input) throws IOException {
+        return Collections.singletonList(new ImageFrame(ImageIO.read(input)));
+    }
 
-        int width = -1;
-        int height = -1;
+    private static class JavaXGifFrameIterator implements Iterator<ImageFrame> {
 
-        IIOMetadata metadata = reader.getStreamMetadata();
-        if (metadata != null) {
-            IIOMetadataNode globalRoot = (IIOMetadataNode) metadata.getAsTree(metadata.getNativeMetadataFormatName());
+        private final ImageReader reader;
+        private int width;
+        private int height;
+        private BufferedImage master;
+        private Graphics2D masterGraphics;
+        private BufferedImage restorePoint;
+        private int frameIndex;
+        private ImageFrame next;
+        private boolean finished;
 
-            NodeList globalScreenDescriptor = globalRoot.getElementsByTagName("LogicalScreenDescriptor");
+        private JavaXGifFrameIterator(InputStream input) throws IOException {
+            this.reader = ImageIO.getImageReadersByFormatName("gif").next();
+            ImageInputStream stream = ImageIO.createImageInputStream(input);
+            reader.setInput(stream);
 
-            if (globalScreenDescriptor != null && globalScreenDescriptor.getLength() > 0) {
-                IIOMetadataNode screenDescriptor = (IIOMetadataNode) globalScreenDescriptor.item(0);
+            this.width = -1;
+            this.height = -1;
 
-                if (screenDescriptor != null) {
-                    width = Integer.parseInt(screenDescriptor.getAttribute("logicalScreenWidth"));
-                    height = Integer.parseInt(screenDescriptor.getAttribute("logicalScreenHeight"));
+            IIOMetadata metadata = reader.getStreamMetadata();
+            if (metadata != null) {
+                IIOMetadataNode globalRoot = (IIOMetadataNode) metadata.getAsTree(metadata.getNativeMetadataFormatName());
+
+                NodeList globalScreenDescriptor = globalRoot.getElementsByTagName("LogicalScreenDescriptor");
+
+                if (globalScreenDescriptor != null && globalScreenDescriptor.getLength() > 0) {
+                    IIOMetadataNode screenDescriptor = (IIOMetadataNode) globalScreenDescriptor.item(0);
+
+                    if (screenDescriptor != null) {
+                        width = Integer.parseInt(screenDescriptor.getAttribute("logicalScreenWidth"));
+                        height = Integer.parseInt(screenDescriptor.getAttribute("logicalScreenHeight"));
+                    }
                 }
             }
+
+            this.master = null;
+            this.masterGraphics = null;
+            this.restorePoint = null;
+            this.frameIndex = 0;
+            this.next = null;
+            this.finished = false;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                try {
+                    next = readNextFrame();
+                } catch (IOException e) {
+                    finish();
+                    throw new UncheckedIOException(e);
+                } catch (RuntimeException e) {
+                    finish();
+                    throw e;
+                }
+                if (next == null) {
+                    finish();
+                }
+            }
+            return next != null;
         }
 
-        BufferedImage master = null;
-        Graphics2D masterGraphics = null;
+        @Override
+        public ImageFrame next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ImageFrame frame = next;
+            next = null;
+            return frame;
+        }
 
-        for (int frameIndex = 0; ; frameIndex++) {
+        private void finish() {
+            finished = true;
+            master = null;
+            restorePoint = null;
+            reader.dispose();
+        }
+
+        private ImageFrame readNextFrame() throws IOException {
             BufferedImage image;
             try {
                 image = reader.read(frameIndex);
             } catch (IndexOutOfBoundsException io) {
-                break;
+                return null;
             }
 
             if (width == -1 || height == -1) {
@@ -165,31 +251,84 @@ public class GifReader {
             masterGraphics.drawImage(image, x, y, null);
 
             BufferedImage copy = new BufferedImage(master.getColorModel(), master.copyData(null), master.isAlphaPremultiplied(), null);
-            frames.add(new ImageFrame(copy, delay, disposal));
 
             if (disposal.equals("restoreToPrevious")) {
-                BufferedImage from = null;
-                for (int i = frameIndex - 1; i >= 0; i--) {
-                    if (!frames.get(i).getDisposal().equals("restoreToPrevious") || frameIndex == 0) {
-                        from = frames.get(i).getImage();
-                        break;
-                    }
+                if (restorePoint == null) {
+                    master = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                } else {
+                    master = new BufferedImage(restorePoint.getColorModel(), restorePoint.copyData(null), restorePoint.isAlphaPremultiplied(), null);
                 }
-
-                master = new BufferedImage(from.getColorModel(), from.copyData(null), from.isAlphaPremultiplied(), null);
                 masterGraphics = master.createGraphics();
                 masterGraphics.setBackground(new Color(0, 0, 0, 0));
-            } else if (disposal.equals("restoreToBackgroundColor")) {
-                masterGraphics.clearRect(x, y, image.getWidth(), image.getHeight());
+            } else {
+                // Frames are never modified once returned, so the last frame which is not restored can be kept as is
+                restorePoint = copy;
+                if (disposal.equals("restoreToBackgroundColor")) {
+                    masterGraphics.clearRect(x, y, image.getWidth(), image.getHeight());
+                }
             }
+
+            frameIndex++;
+            return new ImageFrame(copy, delay, disposal);
         }
-        reader.dispose();
 
-        return frames;
     }
 
-    private static List<ImageFrame> readGifMethodFallback(InputStream input) throws IOException {
-        return Collections.singletonList(new ImageFrame(ImageIO.read(input)));
+    private static class StreamingGifIterator implements Iterator<ImageFrame> {
+
+        private final byte[] data;
+        private Iterator<ImageFrame> frames;
+        private int framesRead;
+
+        private StreamingGifIterator(byte[] data) throws IOException {
+            this.data = data;
+            this.framesRead = 0;
+            try {
+                Iterator<ImageFrame> frames = new JavaXGifFrameIterator(new ByteArrayInputStream(data));
+                if (frames.hasNext()) {
+                    this.frames = frames;
+                    return;
+                }
+            } catch (Throwable ignore) {
+            }
+            List<ThrowingSupplier<List<ImageFrame>>> tries = new ArrayList<>(2);
+            tries.add(() -> readGifMethodMadgag(new ByteArrayInputStream(data)));
+            tries.add(() -> readGifMethodFallback(new ByteArrayInputStream(data)));
+            try {
+                this.frames = readFirstSuccessful(tries).iterator();
+            } catch (IOException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IOException("Unable to read Gif", e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return frames.hasNext();
+            } catch (Throwable e) {
+                // Continue from the same frame with the other decoder, or end the animation
+                // with the frames read so far if that is unable to read the gif either
+                try {
+                    List<ImageFrame> remaining = readGifMethodMadgag(new ByteArrayInputStream(data));
+                    frames = remaining.subList(Math.min(framesRead, remaining.size()), remaining.size()).iterator();
+                } catch (Throwable e2) {
+                    frames = Collections.emptyIterator();
+                }
+                return frames.hasNext();
+            }
+        }
+
+        @Override
+        public ImageFrame next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            framesRead++;
+            return frames.next();
+        }
+
     }
 
     public static class ImageFrame {
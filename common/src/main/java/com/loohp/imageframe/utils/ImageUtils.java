@@ -22,6 +22,11 @@ package com.loohp.imageframe.utils;
 
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 
 public class ImageUtils {
 
@@ -46,4 +51,36 @@ public class ImageUtils {
         return b;
     }
 
+    /**
+     * Reads one row of non-premultiplied ARGB pixels into the given buffer, which must have
+     * at least {@code image.getWidth()} elements. TYPE_INT_ARGB images (including sub-images)
+     * are copied straight from their backing DataBufferInt, other types go through getRGB.
+     */
+    public static int[] getARGBRow(BufferedImage image, int y, int[] row) {
+        int width = image.getWidth();
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB) {
+            WritableRaster raster = image.getRaster();
+            DataBuffer dataBuffer = raster.getDataBuffer();
+            SampleModel sampleModel = raster.getSampleModel();
+            if (dataBuffer instanceof DataBufferInt && sampleModel instanceof SinglePixelPackedSampleModel) {
+                int scanlineStride = ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+                int offset = dataBuffer.getOffset() + (y - raster.getSampleModelTranslateY()) * scanlineStride - raster.getSampleModelTranslateX();
+                System.arraycopy(((DataBufferInt) dataBuffer).getData(), offset, row, 0, width);
+                return row;
+            }
+        }
+        return image.getRGB(0, y, width, 1, row, 0, width);
+    }
+
+    public static int[] getARGBPixels(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = new int[width * height];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(getARGBRow(image, y, row), 0, pixels, y * width, width);
+        }
+        return pixels;
+    }
+
 }
@@ -0,0 +1,300 @@
+/*
+ * This file is part of ImageFrame.
+ *
+ * Copyright (C) 2025. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2025. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.imageframe.utils;
+
+import org.bukkit.map.MapPalette;
+
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compact nearest color index over the map palette, a drop-in replacement for
+ * {@link MapPalette#matchColor(int, int, int)} that returns identical results.
+ * <p>
+ * The RGB cube is split into 32x32x32 cells of 8x8x8 colors. Each cell stores the
+ * palette entries that could be the nearest color of at least one color inside the
+ * cell (using conservative distance bounds), and lookups only compare against those
+ * candidates using the same weighted distance as Bukkit. Building takes milliseconds
+ * and the whole index is a few hundred KB, instead of a 16M entry lookup table.
+ */
+@SuppressWarnings("removal")
+public class MapPaletteIndex {
+
+    public static final int FILE_MAGIC = 0x49464d50;
+    public static final int FILE_VERSION = 1;
+
+    private static final int CELL_BITS = 5;
+    private static final int CELL_SHIFT = 8 - CELL_BITS;
+    private static final int CELL_SIZE = 1 << CELL_SHIFT;
+    private static final int CELLS_PER_CHANNEL = 1 << CELL_BITS;
+    private static final int CELL_COUNT = CELLS_PER_CHANNEL * CELLS_PER_CHANNEL * CELLS_PER_CHANNEL;
+    // Palette indices below this are transparent
+    private static final int FIRST_OPAQUE_INDEX = 4;
+    private static final double BOUND_EPSILON = 1E-6;
+
+    private static volatile MapPaletteIndex instance = null;
+    private static volatile File persistentFile = null;
+
+    /**
+     * Sets the file the index is loaded from and saved to, must be called before
+     * the first {@link #getInstance()} to have any effect.
+     */
+    public static void setPersistentFile(File file) {
+        persistentFile = file;
+    }
+
+    public static MapPaletteIndex getInstance() {
+        MapPaletteIndex index = instance;
+        if (index == null) {
+            synchronized (MapPaletteIndex.class) {
+                index = instance;
+                if (index == null) {
+                    instance = index = loadOrBuild(persistentFile);
+                }
+            }
+        }
+        return index;
+    }
+
+    private static MapPaletteIndex loadOrBuild(File file) {
+        int[] palette = readPalette();
+        if (file != null && file.exists()) {
+            try {
+                MapPaletteIndex index = read(file, palette);
+                if (index != null) {
+                    return index;
+                }
+            } catch (IOException | RuntimeException e) {
+                // A truncated or corrupt cache is just a miss, it is rebuilt and overwritten below
+                e.printStackTrace();
+            }
+        }
+        MapPaletteIndex index = build(palette);
+        if (file != null) {
+            try {
+                index.write(file);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return index;
+    }
+
+    private static int[] readPalette() {
+        int[] palette = new int[256];
+        int size = 0;
+        for (int i = 0; i < 256; i++) {
+            Color color;
+            try {
+                color = MapPalette.getColor((byte) i);
+            } catch (IndexOutOfBoundsException e) {
+                break;
+            }
+            palette[i] = color.getRGB() & 0xFFFFFF;
+            size++;
+        }
+        return Arrays.copyOf(palette, size);
+    }
+
+    private static MapPaletteIndex build(int[] palette) {
+        int[] cellOffsets = new int[CELL_COUNT + 1];
+        byte[] candidates = new byte[CELL_COUNT * 4];
+        int candidateCount = 0;
+        double[] lowerBounds = new double[palette.length];
+        for (int cell = 0; cell < CELL_COUNT; cell++) {
+            int r0 = (cell >> (CELL_BITS * 2)) << CELL_SHIFT;
+            int g0 = ((cell >> CELL_BITS) & (CELLS_PER_CHANNEL - 1)) << CELL_SHIFT;
+            int b0 = (cell & (CELLS_PER_CHANNEL - 1)) << CELL_SHIFT;
+            int r1 = r0 + CELL_SIZE - 1;
+            int g1 = g0 + CELL_SIZE - 1;
+            int b1 = b0 + CELL_SIZE - 1;
+            double bestUpperBound = Double.MAX_VALUE;
+            for (int i = FIRST_OPAQUE_INDEX; i < palette.length; i++) {
+                int pr = (palette[i] >> 16) & 0xFF;
+                int pg = (palette[i] >> 8) & 0xFF;
+                int pb = palette[i] & 0xFF;
+                // The red and blue weights depend on the mean red, bound them over the cell
+                double minWeightR = 2 + ((r0 + pr) / 2.0) / 256.0;
+                double maxWeightR = 2 + ((r1 + pr) / 2.0) / 256.0;
+                double minWeightB = 2 + (255 - (r1 + pr) / 2.0) / 256.0;
+                double maxWeightB = 2 + (255 - (r0 + pr) / 2.0) / 256.0;
+                double lowerBound = minWeightR * square(minDistance(pr, r0, r1)) + 4.0 * square(minDistance(pg, g0, g1)) + minWeightB * square(minDistance(pb, b0, b1));
+                double upperBound = maxWeightR * square(maxDistance(pr, r0, r1)) + 4.0 * square(maxDistance(pg, g0, g1)) + maxWeightB * square(maxDistance(pb, b0, b1));
+                lowerBounds[i] = lowerBound;
+                if (upperBound < bestUpperBound) {
+                    bestUpperBound = upperBound;
+                }
+            }
+            cellOffsets[cell] = candidateCount;
+            for (int i = FIRST_OPAQUE_INDEX; i < palette.length; i++) {
+                // Small margin so rounding can never drop a tied candidate
+                if (lowerBounds[i] <= bestUpperBound + BOUND_EPSILON) {
+                    if (candidateCount >= candidates.length) {
+                        candidates = Arrays.copyOf(candidates, candidates.length * 2);
+                    }
+                    candidates[candidateCount++] = (byte) i;
+                }
+            }
+        }
+        cellOffsets[CELL_COUNT] = candidateCount;
+        return new MapPaletteIndex(palette, cellOffsets, Arrays.copyOf(candidates, candidateCount));
+    }
+
+    private static int minDistance(int value, int min, int max) {
+        return value < min ? min - value : (value > max ? value - max : 0);
+    }
+
+    private static int maxDistance(int value, int min, int max) {
+        return Math.max(Math.abs(value - min), Math.abs(value - max));
+    }
+
+    private static double square(int value) {
+        return (double) value * value;
+    }
+
+    private static MapPaletteIndex read(File file, int[] palette) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION || in.readInt() != CELL_BITS) {
+                return null;
+            }
+            int paletteSize = in.readInt();
+            if (paletteSize != palette.length) {
+                return null;
+            }
+            for (int rgb : palette) {
+                if (in.readInt() != rgb) {
+                    return null;
+                }
+            }
+            // Every cell has at least one and at most every opaque color as candidates
+            int maxCandidates = CELL_COUNT * Math.max(0, palette.length - FIRST_OPAQUE_INDEX);
+            int[] cellOffsets = new int[CELL_COUNT + 1];
+            for (int i = 0; i < cellOffsets.length; i++) {
+                int offset = in.readInt();
+                if (i == 0 ? offset != 0 : (offset <= cellOffsets[i - 1] || offset > maxCandidates)) {
+                    return null;
+                }
+                cellOffsets[i] = offset;
+            }
+            byte[] candidates = new byte[cellOffsets[CELL_COUNT]];
+            in.readFully(candidates);
+            for (byte candidate : candidates) {
+                int index = candidate & 0xFF;
+                if (index < FIRST_OPAQUE_INDEX || index >= palette.length) {
+                    return null;
+                }
+            }
+            if (in.read() != -1) {
+                return null;
+            }
+            return new MapPaletteIndex(palette, cellOffsets, candidates);
+        }
+    }
+
+    private final int[] palette;
+    private final int[] cellOffsets;
+    private final byte[] candidates;
+
+    private MapPaletteIndex(int[] palette, int[] cellOffsets, byte[] candidates) {
+        this.palette = palette;
+        this.cellOffsets = cellOffsets;
+        this.candidates = candidates;
+    }
+
+    public void write(File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(CELL_BITS);
+            out.writeInt(palette.length);
+            for (int rgb : palette) {
+                out.writeInt(rgb);
+            }
+            for (int offset : cellOffsets) {
+                out.writeInt(offset);
+            }
+            out.write(candidates);
+        }
+    }
+
+    /**
+     * @return the nearest opaque palette color, same as {@link MapPalette#matchColor(int, int, int)}
+     */
+    public byte matchColor(int r, int g, int b) {
+        int cell = ((r >> CELL_SHIFT) << (CELL_BITS * 2)) | ((g >> CELL_SHIFT) << CELL_BITS) | (b >> CELL_SHIFT);
+        int start = cellOffsets[cell];
+        int end = cellOffsets[cell + 1];
+        if (end - start == 1) {
+            return candidates[start];
+        }
+        byte closest = candidates[start];
+        double closestDistance = -1;
+        for (int i = start; i < end; i++) {
+            byte candidate = candidates[i];
+            int rgb = palette[candidate & 0xFF];
+            // Same weighted distance and evaluation order as Bukkit's MapPalette
+            double rmean = (r + ((rgb >> 16) & 0xFF)) / 2.0;
+            double dr = r - ((rgb >> 16) & 0xFF);
+            double dg = g - ((rgb >> 8) & 0xFF);
+            int db = b - (rgb & 0xFF);
+            double weightR = 2 + rmean / 256.0;
+            double weightG = 4.0;
+            double weightB = 2 + (255 - rmean) / 256.0;
+            double distance = weightR * dr * dr + weightG * dg * dg + weightB * db * db;
+            if (distance < closestDistance || closestDistance == -1) {
+                closestDistance = distance;
+                closest = candidate;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * @param rgb packed RGB, alpha is ignored
+     */
+    public byte matchColor(int rgb) {
+        return matchColor((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+    }
+
+    /**
+     * @return the packed RGB of the given palette color
+     */
+    public int getColor(byte index) {
+        return palette[index & 0xFF];
+    }
+
+    public int getPaletteSize() {
+        return palette.length;
+    }
+
+}
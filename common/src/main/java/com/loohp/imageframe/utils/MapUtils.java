@@ -29,8 +29,12 @@ import com.loohp.imageframe.objectholders.DitheringType;
 import com.loohp.imageframe.objectholders.ImageMap;
 import com.loohp.imageframe.objectholders.ImageMapHitTargetResult;
 import com.loohp.imageframe.objectholders.IntPosition;
+import com.loohp.imageframe.objectholders.MapPacketPriority;
 import com.loohp.imageframe.objectholders.MapPacketSentCallback;
 import com.loohp.imageframe.objectholders.MutablePair;
+import com.loohp.imageframe.objectholders.RateLimitedPacketSendingManager;
+import com.loohp.imageframe.objectholders.SharedMapPacket;
+import com.loohp.imageframe.objectholders.SharedMapPacketCache;
 import com.loohp.platformscheduler.Scheduler;
 import net.kyori.adventure.key.Key;
 import org.bukkit.Bukkit;
@@ -66,6 +70,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
@@ -82,11 +87,11 @@ public class MapUtils {
     public static final String GIF_CONTENT_TYPE = "image/gif";
     public static final List<BlockFace> CARTESIAN_BLOCK_FACES = Collections.unmodifiableList(Arrays.asList(BlockFace.NORTH, BlockFace.EAST, BlockFace.SOUTH, BlockFace.WEST, BlockFace.UP, BlockFace.DOWN));
 
-    @SuppressWarnings("removal")
     private static byte[] generateGrayScale() {
+        MapPaletteIndex paletteIndex = MapPaletteIndex.getInstance();
         Set<Byte> bytes = new TreeSet<>();
         for (int i = 0; i < 256; i++) {
-            bytes.add(MapPalette.matchColor(i, i, i));
+            bytes.add(paletteIndex.matchColor(i, i, i));
         }
         byte[] result = new byte[bytes.size()];
         int i = 0;
@@ -129,6 +134,20 @@ public class MapUtils {
     }
 
     public static void sendImageMap(int mapId, MapView mapView, int currentTick, Collection<? extends Player> players, MapPacketSentCallback completionCallback, boolean now) {
+        sendImageMap(mapId, mapView, currentTick, players, completionCallback, now, MapPacketPriority.FRAME, null);
+    }
+
+    /**
+     * Queues the map to be sent with the given priority, packets for maps closer to the location
+     * are sent first within the same priority.
+     *
+     * @param location the location the map is displayed at, or null if unknown
+     */
+    public static void sendImageMap(int mapId, MapView mapView, int currentTick, Collection<? extends Player> players, MapPacketSentCallback completionCallback, MapPacketPriority priority, Location location) {
+        sendImageMap(mapId, mapView, currentTick, players, completionCallback, false, priority, location);
+    }
+
+    private static void sendImageMap(int mapId, MapView mapView, int currentTick, Collection<? extends Player> players, MapPacketSentCallback completionCallback, boolean now, MapPacketPriority priority, Location location) {
         List<MapRenderer> renderers = mapView.getRenderers();
         if (renderers.isEmpty()) {
             throw new IllegalArgumentException("mapView is not from an image map");
@@ -138,20 +157,131 @@ public class MapUtils {
             throw new IllegalArgumentException("mapView is not from an image map");
         }
         ImageMap.ImageMapRenderer imageMapManager = (ImageMap.ImageMapRenderer) optMapRenderer.get();
+        boolean animatedMapId = mapId == mapView.getId() && imageMapManager.getImageMap().requiresAnimationService();
+        boolean partialUpdates = animatedMapId && !now && ImageFrame.partialAnimatedMapUpdates;
+        SharedMapPacketCache.MapPackets sharedPackets = null;
+        int sharedFrame = -1;
+        if (!players.isEmpty() && !partialUpdates && SharedMapPacketCache.getInstance().canShare(imageMapManager.getImageMap())) {
+            sharedFrame = imageMapManager.getSharedPacketFrame(mapView, currentTick);
+            if (sharedFrame >= 0) {
+                sharedPackets = SharedMapPacketCache.getInstance().getPackets(imageMapManager.getImageMap());
+            }
+        }
         for (Player player : players) {
-            MutablePair<byte[], Collection<MapCursor>> renderData = currentTick < 0 ? imageMapManager.renderPacketData(mapView, player) : imageMapManager.renderPacketData(mapView, currentTick, player);
-            byte[] colors = renderData.getFirst();
-            Collection<MapCursor> cursors = renderData.getSecond();
-            Object packet = NMS.getInstance().createMapPacket(mapId, colors, cursors);
+            Object packet = null;
+            int size;
+            boolean partial = false;
+            int[] area = null;
+            if (animatedMapId && !partialUpdates) {
+                ImageFrame.rateLimitedPacketSendingManager.swapLastQueuedColors(player, mapId, null);
+            }
+            if (sharedPackets != null) {
+                packet = sharedPackets.get(mapId, sharedFrame);
+                size = MAP_WIDTH * MAP_WIDTH + RateLimitedPacketSendingManager.DEFAULT_PACKET_SIZE;
+                if (packet == null) {
+                    MutablePair<byte[], Collection<MapCursor>> renderData = imageMapManager.renderPacketData(mapView, sharedFrame, player);
+                    byte[] colors = renderData.getFirst();
+                    packet = NMS.getInstance().createMapPacket(mapId, colors, renderData.getSecond());
+                    if (colors == null) {
+                        sharedPackets = null;
+                        size = RateLimitedPacketSendingManager.DEFAULT_PACKET_SIZE;
+                    } else {
+                        packet = sharedPackets.put(mapId, sharedFrame, new SharedMapPacket(packet), ImageFrame.preSerializeMapPackets ? size * 2L : size);
+                    }
+                }
+            } else {
+                MutablePair<byte[], Collection<MapCursor>> renderData = currentTick < 0 ? imageMapManager.renderPacketData(mapView, player) : imageMapManager.renderPacketData(mapView, currentTick, player);
+                byte[] colors = renderData.getFirst();
+                Collection<MapCursor> cursors = renderData.getSecond();
+                size = RateLimitedPacketSendingManager.DEFAULT_PACKET_SIZE;
+                if (partialUpdates && colors != null) {
+                    byte[] previousColors = ImageFrame.rateLimitedPacketSendingManager.swapLastQueuedColors(player, mapId, colors);
+                    if (previousColors != null) {
+                        // Also cover what the unsent packet for this map updates, so that this one can replace it
+                        area = unionArea(previousColors == colors ? null : getChangedArea(previousColors, colors), ImageFrame.rateLimitedPacketSendingManager.getPendingArea(player, mapId));
+                        if (area == null) {
+                            partial = true;
+                            packet = NMS.getInstance().createMapPacket(mapId, null, cursors);
+                        } else if (area[2] < MAP_WIDTH || area[3] < MAP_WIDTH) {
+                            partial = true;
+                            packet = NMS.getInstance().createMapPacket(mapId, colors, cursors, area[0], area[1], area[2], area[3]);
+                            size += area[2] * area[3];
+                        }
+                    }
+                }
+                if (!partial) {
+                    packet = NMS.getInstance().createMapPacket(mapId, colors, cursors);
+                    size += colors == null ? 0 : colors.length;
+                }
+            }
             if (now) {
-                NMS.getInstance().sendPacket(player, packet);
+                RateLimitedPacketSendingManager.sendPacket(player, packet);
                 if (completionCallback != null) {
                     completionCallback.accept(player, mapId, true);
                 }
             } else {
-                ImageFrame.rateLimitedPacketSendingManager.queue(player, packet, completionCallback == null ? null : (p, r) -> completionCallback.accept(p, mapId, r));
+                double distanceSquared = 0;
+                if (location != null) {
+                    Location playerLocation = player.getLocation();
+                    if (Objects.equals(playerLocation.getWorld(), location.getWorld())) {
+                        distanceSquared = playerLocation.distanceSquared(location);
+                    }
+                }
+                ImageFrame.rateLimitedPacketSendingManager.queue(player, mapId, packet, size, priority, distanceSquared, partial, area, completionCallback == null ? null : (p, r) -> completionCallback.accept(p, mapId, r));
+            }
+        }
+    }
+
+    /**
+     * @return the smallest area as x, y, width and height containing both areas, null areas contain nothing
+     */
+    public static int[] unionArea(int[] area, int[] other) {
+        if (area == null) {
+            return other;
+        }
+        if (other == null) {
+            return area;
+        }
+        int minX = Math.min(area[0], other[0]);
+        int minY = Math.min(area[1], other[1]);
+        int maxX = Math.max(area[0] + area[2], other[0] + other[2]);
+        int maxY = Math.max(area[1] + area[3], other[1] + other[3]);
+        return new int[] {minX, minY, maxX - minX, maxY - minY};
+    }
+
+    /**
+     * @return the smallest area {x, y, width, height} containing every pixel that differs between the two maps,
+     * or null if they are the same
+     */
+    public static int[] getChangedArea(byte[] previous, byte[] current) {
+        int minX = MAP_WIDTH;
+        int minY = -1;
+        int maxX = -1;
+        int maxY = -1;
+        for (int y = 0; y < MAP_WIDTH; y++) {
+            int row = y * MAP_WIDTH;
+            int x = 0;
+            while (x < MAP_WIDTH && previous[row + x] == current[row + x]) {
+                x++;
+            }
+            if (x == MAP_WIDTH) {
+                continue;
+            }
+            int lastX = MAP_WIDTH - 1;
+            while (previous[row + lastX] == current[row + lastX]) {
+                lastX--;
+            }
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, lastX);
+            if (minY < 0) {
+                minY = y;
             }
+            maxY = y;
         }
+        if (minY < 0) {
+            return null;
+        }
+        return new int[] {minX, minY, maxX - minX + 1, maxY - minY + 1};
     }
 
     public static byte[] toMapPaletteBytes(BufferedImage image, DitheringType ditheringType) {
@@ -219,7 +349,8 @@ public class MapUtils {
     }
 
     public static MapView getItemMapView(ItemStack itemStack) {
-        if (itemStack == null || itemStack.getType().equals(Material.AIR) || !itemStack.hasItemMeta()) {
+        // Only filled maps have map meta, checking the type first skips copying the meta of every other item
+        if (itemStack == null || itemStack.getType() != Material.FILLED_MAP || !itemStack.hasItemMeta()) {
             return null;
         }
         ItemMeta meta = itemStack.getItemMeta();
@@ -230,8 +361,8 @@ public class MapUtils {
         if (!mapMeta.hasMapView()) {
             return null;
         }
-        if (mapMeta.hasMapId()) {
-            tryDeleteBlankDataFile(getMainWorld(), mapMeta.getMapId());
+        if (mapMeta.hasMapId() && ImageFrame.blankMapFileChecker != null) {
+            ImageFrame.blankMapFileChecker.check(mapMeta.getMapId());
         }
         return mapMeta.getMapView();
     }
@@ -399,7 +530,7 @@ public class MapUtils {
     public static Future<MapView> createMap(World world) {
         return FutureUtils.callSyncMethod(() -> {
             int worldNextId = NMS.getInstance().getNextAvailableMapId(world);
-            int ifNextId = ImageFrame.imageMapManager.getMaps().stream().flatMap(i -> i.getMapIds().stream()).mapToInt(i -> i).max().orElse(-1) + 1;
+            int ifNextId = ImageFrame.imageMapManager.getMaxMapId() + 1;
             int worldDataNextId;
             File worldDataFolder = new File(world.getWorldFolder(), "data");
             if (worldDataFolder.exists() && worldDataFolder.isDirectory()) {
@@ -20,96 +20,55 @@
 
 package com.loohp.imageframe.utils.dithering;
 
+import com.loohp.imageframe.utils.ImageUtils;
+import com.loohp.imageframe.utils.MapPaletteIndex;
 import com.loohp.imageframe.utils.MapUtils;
-import org.bukkit.map.MapPalette;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
 
-@SuppressWarnings("removal")
 public class FloydSteinbergDithering {
 
-    private static final C3[] PALETTE;
-    // Lookup table: RGB (packed as int) -> palette byte
-    private static final byte[] PALETTE_LUT = new byte[16777216];
-    // Lookup table: RGB (packed as int) -> palette C3 (r,g,b packed for fast error diffusion)
-    private static final int[] PALETTE_RGB_LUT = new int[16777216];
-
-    static {
-        Set<Byte> bytes = new LinkedHashSet<>();
-        for (int i = 0; i < 16777216; i++) {
-            byte paletteIdx = MapPalette.matchColor(new Color(i));
-            bytes.add(paletteIdx);
-            PALETTE_LUT[i] = paletteIdx;
-        }
-        Set<C3> values = new LinkedHashSet<>();
-        for (byte b : bytes) {
-            values.add(new C3(MapPalette.getColor(b)));
-        }
-        PALETTE = values.toArray(new C3[0]);
-        // Build RGB lookup for error diffusion
-        for (int i = 0; i < 16777216; i++) {
-            Color c = MapPalette.getColor(PALETTE_LUT[i]);
-            PALETTE_RGB_LUT[i] = (c.getRed() << 16) | (c.getGreen() << 8) | c.getBlue();
-        }
-    }
-
-    static class C3 {
-
-        private final int r;
-        private final int g;
-        private final int b;
-        private final boolean transparent;
-
-        public C3(Color color) {
-            this(color.getRed(), color.getGreen(), color.getBlue(), color.getAlpha() < 128);
-        }
-
-        public C3(int r, int g, int b) {
-            this(r, g, b, false);
-        }
+    // Images smaller than this are dithered serially, the scheduling overhead is not worth it
+    private static final int PARALLEL_MIN_PIXELS = 256 * 256;
+    // How often (in columns) a row publishes its progress to the row below
+    private static final int PARALLEL_PROGRESS_STEP = 32;
+    // A waiting row spins this many times before parking, the row above usually catches up within a few spins
+    private static final int PARALLEL_SPIN_LIMIT = 256;
+    private static final long PARALLEL_PARK_NANOS = 20_000;
+    // Thread.onSpinWait() is Java 9+, null when running on Java 8
+    private static final MethodHandle ON_SPIN_WAIT = findOnSpinWait();
+    private static final ForkJoinPool PARALLEL_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("ImageFrame Dithering Thread #" + thread.getPoolIndex());
+        return thread;
+    }, null, false);
 
-        public C3(int r, int g, int b, boolean transparent) {
-            this.r = r;
-            this.g = g;
-            this.b = b;
-            this.transparent = transparent;
-        }
-
-        public C3 add(C3 o) {
-            return new C3(r + o.r, g + o.g, b + o.b, transparent);
-        }
-
-        public int diff(C3 o) {
-            int rDiff = o.r - r;
-            int gDiff = o.g - g;
-            int bDiff = o.b - b;
-            return rDiff * rDiff + gDiff * gDiff + bDiff * bDiff;
-        }
+    private static final ThreadLocal<DitheringBuffers> DITHERING_BUFFERS = ThreadLocal.withInitial(() -> new DitheringBuffers());
 
-        public C3 mul(double d) {
-            return new C3((int) (d * r), (int) (d * g), (int) (d * b), transparent);
-        }
-
-        public C3 sub(C3 o) {
-            return new C3(r - o.r, g - o.g, b - o.b, transparent);
-        }
-
-        public boolean isTransparent() {
-            return transparent;
+    private static MethodHandle findOnSpinWait() {
+        try {
+            return MethodHandles.lookup().findStatic(Thread.class, "onSpinWait", MethodType.methodType(void.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
         }
     }
 
-    private static C3 findClosestPaletteColor(C3 c) {
-        C3 closest = PALETTE[0];
-        for (C3 n : PALETTE) {
-            if (n.diff(c) < closest.diff(c)) {
-                closest = n;
+    private static void onSpinWait() {
+        if (ON_SPIN_WAIT != null) {
+            try {
+                ON_SPIN_WAIT.invokeExact();
+            } catch (Throwable ignore) {
             }
         }
-        return closest;
     }
 
     private static int clampColor(int c) {
@@ -119,80 +78,246 @@ public class FloydSteinbergDithering {
     public static byte[] floydSteinbergDithering(BufferedImage img) {
         int w = img.getWidth();
         int h = img.getHeight();
+        MapPaletteIndex paletteIndex = MapPaletteIndex.getInstance();
 
-        // Use primitive int arrays instead of C3 objects to reduce allocations
-        int[][] rr = new int[h][w];
-        int[][] gg = new int[h][w];
-        int[][] bb = new int[h][w];
-        boolean[][] transparent = new boolean[h][w];
-
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
-                int argb = img.getRGB(x, y);
-                int alpha = (argb >> 24) & 0xFF;
-                transparent[y][x] = alpha < 128;
-                rr[y][x] = (argb >> 16) & 0xFF;
-                gg[y][x] = (argb >> 8) & 0xFF;
-                bb[y][x] = argb & 0xFF;
-            }
-        }
+        // Only the error diffused into the current and the next row is kept, reused across calls on the same thread
+        DitheringBuffers buffers = DITHERING_BUFFERS.get().ensureCapacity(w);
+        int[] pixels = buffers.pixels;
+        int[] currentErrors = buffers.currentErrors;
+        int[] nextErrors = buffers.nextErrors;
+        Arrays.fill(currentErrors, 0, w * 3, 0);
 
         byte[] result = new byte[w * h];
         for (int y = 0; y < h; y++) {
+            ImageUtils.getARGBRow(img, y, pixels);
+            boolean hasNextRow = y + 1 < h;
+            Arrays.fill(nextErrors, 0, w * 3, 0);
+            int rowOffset = y * w;
             for (int x = 0; x < w; x++) {
-                if (transparent[y][x]) {
-                    result[y * w + x] = MapUtils.PALETTE_TRANSPARENT;
+                int argb = pixels[x];
+                int alpha = (argb >> 24) & 0xFF;
+                if (alpha < 128) {
+                    result[rowOffset + x] = MapUtils.PALETTE_TRANSPARENT;
                 } else {
-                    int oldR = rr[y][x];
-                    int oldG = gg[y][x];
-                    int oldB = bb[y][x];
+                    int e = x * 3;
+                    int oldR = ((argb >> 16) & 0xFF) + currentErrors[e];
+                    int oldG = ((argb >> 8) & 0xFF) + currentErrors[e + 1];
+                    int oldB = (argb & 0xFF) + currentErrors[e + 2];
 
                     // Clamp to valid RGB range for lookup
-                    int clampedR = clampColor(oldR);
-                    int clampedG = clampColor(oldG);
-                    int clampedB = clampColor(oldB);
-                    int rgbKey = (clampedR << 16) | (clampedG << 8) | clampedB;
-
-                    // Direct LUT lookup instead of findClosestPaletteColor()
-                    result[y * w + x] = PALETTE_LUT[rgbKey];
+                    byte color = paletteIndex.matchColor(clampColor(oldR), clampColor(oldG), clampColor(oldB));
+                    result[rowOffset + x] = color;
 
                     // Get the actual palette color for error diffusion
-                    int paletteRgb = PALETTE_RGB_LUT[rgbKey];
-                    int newR = (paletteRgb >> 16) & 0xFF;
-                    int newG = (paletteRgb >> 8) & 0xFF;
-                    int newB = paletteRgb & 0xFF;
-
-                    // Calculate error (inline, no object creation)
-                    int errR = oldR - newR;
-                    int errG = oldG - newG;
-                    int errB = oldB - newB;
+                    int paletteRgb = paletteIndex.getColor(color);
+                    int errR = oldR - ((paletteRgb >> 16) & 0xFF);
+                    int errG = oldG - ((paletteRgb >> 8) & 0xFF);
+                    int errB = oldB - (paletteRgb & 0xFF);
 
                     // Floyd-Steinberg error diffusion (inline arithmetic)
                     if (x + 1 < w) {
-                        rr[y][x + 1] += errR * 7 / 16;
-                        gg[y][x + 1] += errG * 7 / 16;
-                        bb[y][x + 1] += errB * 7 / 16;
-                    }
-                    if (x - 1 >= 0 && y + 1 < h) {
-                        rr[y + 1][x - 1] += errR * 3 / 16;
-                        gg[y + 1][x - 1] += errG * 3 / 16;
-                        bb[y + 1][x - 1] += errB * 3 / 16;
-                    }
-                    if (y + 1 < h) {
-                        rr[y + 1][x] += errR * 5 / 16;
-                        gg[y + 1][x] += errG * 5 / 16;
-                        bb[y + 1][x] += errB * 5 / 16;
+                        currentErrors[e + 3] += errR * 7 / 16;
+                        currentErrors[e + 4] += errG * 7 / 16;
+                        currentErrors[e + 5] += errB * 7 / 16;
                     }
-                    if (x + 1 < w && y + 1 < h) {
-                        rr[y + 1][x + 1] += errR / 16;
-                        gg[y + 1][x + 1] += errG / 16;
-                        bb[y + 1][x + 1] += errB / 16;
+                    if (hasNextRow) {
+                        if (x - 1 >= 0) {
+                            nextErrors[e - 3] += errR * 3 / 16;
+                            nextErrors[e - 2] += errG * 3 / 16;
+                            nextErrors[e - 1] += errB * 3 / 16;
+                        }
+                        nextErrors[e] += errR * 5 / 16;
+                        nextErrors[e + 1] += errG * 5 / 16;
+                        nextErrors[e + 2] += errB * 5 / 16;
+                        if (x + 1 < w) {
+                            nextErrors[e + 3] += errR / 16;
+                            nextErrors[e + 4] += errG / 16;
+                            nextErrors[e + 5] += errB / 16;
+                        }
                     }
                 }
             }
+            int[] swap = currentErrors;
+            currentErrors = nextErrors;
+            nextErrors = swap;
         }
 
         return result;
     }
 
+    private static class DitheringBuffers {
+
+        private int[] pixels = new int[0];
+        private int[] currentErrors = new int[0];
+        private int[] nextErrors = new int[0];
+
+        private DitheringBuffers ensureCapacity(int width) {
+            if (pixels.length < width) {
+                pixels = new int[width];
+                currentErrors = new int[width * 3];
+                nextErrors = new int[width * 3];
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Produces the exact same output as {@link #floydSteinbergDithering(BufferedImage)}, but
+     * dithers multiple rows at once using wavefront scheduling: a row may process column x
+     * once the row above it has finished column x + 1, which is the last pixel that diffuses
+     * error into it. Rows are claimed in order, so a row only ever waits on a row that is
+     * already being processed by a running thread.
+     */
+    public static byte[] parallelFloydSteinbergDithering(BufferedImage img) {
+        int w = img.getWidth();
+        int h = img.getHeight();
+        int parallelism = Math.min(PARALLEL_POOL.getParallelism(), h);
+        if (parallelism <= 1 || w * h < PARALLEL_MIN_PIXELS) {
+            return floydSteinbergDithering(img);
+        }
+
+        ParallelDitheringJob job = new ParallelDitheringJob(img, w, h, parallelism * 2 + 2);
+        for (int i = 1; i < parallelism; i++) {
+            PARALLEL_POOL.execute(job::work);
+        }
+        job.work();
+        // The last row can only complete after every row above it has
+        job.awaitProgress(h - 1, w);
+
+        return job.result;
+    }
+
+    private static class ParallelDitheringJob {
+
+        private final BufferedImage img;
+        private final MapPaletteIndex paletteIndex;
+        private final int w;
+        private final int h;
+        private final byte[] result;
+        // Ring of error rows, the error diffused into row y is stored in slot y % errorRowCount
+        private final int errorRowCount;
+        private final int[] errorRows;
+        // Number of columns each row has finished
+        private final AtomicIntegerArray progress;
+        private final AtomicInteger nextRow;
+        private volatile Throwable failure;
+
+        private ParallelDitheringJob(BufferedImage img, int w, int h, int errorRowCount) {
+            this.img = img;
+            this.paletteIndex = MapPaletteIndex.getInstance();
+            this.w = w;
+            this.h = h;
+            this.result = new byte[w * h];
+            this.errorRowCount = errorRowCount;
+            this.errorRows = new int[errorRowCount * w * 3];
+            this.progress = new AtomicIntegerArray(h);
+            this.nextRow = new AtomicInteger(0);
+            this.failure = null;
+        }
+
+        private void work() {
+            try {
+                int[] pixels = new int[w];
+                int y;
+                while (failure == null && (y = nextRow.getAndIncrement()) < h) {
+                    ditherRow(y, pixels);
+                }
+            } catch (Throwable e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        private int awaitProgress(int row, int columns) {
+            int spins = 0;
+            int current;
+            while ((current = progress.get(row)) < columns) {
+                Throwable throwable = failure;
+                if (throwable != null) {
+                    throw new IllegalStateException("Parallel dithering failed", throwable);
+                }
+                if (spins < PARALLEL_SPIN_LIMIT) {
+                    spins++;
+                    onSpinWait();
+                } else {
+                    LockSupport.parkNanos(this, PARALLEL_PARK_NANOS);
+                }
+            }
+            return current;
+        }
+
+        private void ditherRow(int y, int[] pixels) {
+            ImageUtils.getARGBRow(img, y, pixels);
+
+            int currentOffset = (y % errorRowCount) * w * 3;
+            boolean hasNextRow = y + 1 < h;
+            int nextOffset = ((y + 1) % errorRowCount) * w * 3;
+            if (hasNextRow) {
+                int previousOwner = y + 1 - errorRowCount;
+                if (previousOwner >= 0) {
+                    awaitProgress(previousOwner, w);
+                }
+                Arrays.fill(errorRows, nextOffset, nextOffset + w * 3, 0);
+            }
+
+            int available = y == 0 ? w : 0;
+            int carryR = 0;
+            int carryG = 0;
+            int carryB = 0;
+            int rowOffset = y * w;
+            for (int x = 0; x < w; x++) {
+                int needed = Math.min(w, x + 2);
+                if (available < needed) {
+                    available = awaitProgress(y - 1, needed);
+                }
+
+                int argb = pixels[x];
+                int alpha = (argb >> 24) & 0xFF;
+                if (alpha < 128) {
+                    result[rowOffset + x] = MapUtils.PALETTE_TRANSPARENT;
+                    carryR = 0;
+                    carryG = 0;
+                    carryB = 0;
+                } else {
+                    int e = currentOffset + x * 3;
+                    int oldR = ((argb >> 16) & 0xFF) + errorRows[e] + carryR;
+                    int oldG = ((argb >> 8) & 0xFF) + errorRows[e + 1] + carryG;
+                    int oldB = (argb & 0xFF) + errorRows[e + 2] + carryB;
+
+                    byte color = paletteIndex.matchColor(clampColor(oldR), clampColor(oldG), clampColor(oldB));
+                    result[rowOffset + x] = color;
+
+                    int paletteRgb = paletteIndex.getColor(color);
+                    int errR = oldR - ((paletteRgb >> 16) & 0xFF);
+                    int errG = oldG - ((paletteRgb >> 8) & 0xFF);
+                    int errB = oldB - (paletteRgb & 0xFF);
+
+                    carryR = errR * 7 / 16;
+                    carryG = errG * 7 / 16;
+                    carryB = errB * 7 / 16;
+                    if (hasNextRow) {
+                        int n = nextOffset + x * 3;
+                        if (x - 1 >= 0) {
+                            errorRows[n - 3] += errR * 3 / 16;
+                            errorRows[n - 2] += errG * 3 / 16;
+                            errorRows[n - 1] += errB * 3 / 16;
+                        }
+                        errorRows[n] += errR * 5 / 16;
+                        errorRows[n + 1] += errG * 5 / 16;
+                        errorRows[n + 2] += errB * 5 / 16;
+                        if (x + 1 < w) {
+                            errorRows[n + 3] += errR / 16;
+                            errorRows[n + 4] += errG / 16;
+                            errorRows[n + 5] += errB / 16;
+                        }
+                    }
+                }
+
+                if ((x + 1) % PARALLEL_PROGRESS_STEP == 0 || x + 1 == w) {
+                    progress.lazySet(y, x + 1);
+                }
+            }
+        }
+    }
+
 }
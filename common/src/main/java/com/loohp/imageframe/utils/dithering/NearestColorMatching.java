@@ -0,0 +1,68 @@
+/*
+ * This file is part of ImageFrame.
+ *
+ * Copyright (C) 2025. LoohpJames <jamesloohp@gmail.com>
+ * Copyright (C) 2025. Contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.loohp.imageframe.utils.dithering;
+
+import com.loohp.imageframe.utils.ImageUtils;
+import com.loohp.imageframe.utils.MapPaletteIndex;
+import com.loohp.imageframe.utils.MapUtils;
+
+import java.awt.image.BufferedImage;
+
+public class NearestColorMatching {
+
+    /**
+     * Equivalent of MapPalette.imageToBytes, but reads the raster directly instead of
+     * redrawing the image and matches through the shared {@link MapPaletteIndex}.
+     * Pixels with alpha below 128 are transparent. Partially transparent pixels are not
+     * passed through Java2D compositing, so they can differ from Bukkit by rounding.
+     */
+    public static byte[] nearestColor(BufferedImage img) {
+        int w = img.getWidth();
+        int h = img.getHeight();
+        MapPaletteIndex paletteIndex = MapPaletteIndex.getInstance();
+
+        int[] pixels = new int[w];
+        byte[] result = new byte[w * h];
+        // Neighbouring pixels are very often the same color
+        int lastRgb = -1;
+        byte lastColor = MapUtils.PALETTE_TRANSPARENT;
+        for (int y = 0; y < h; y++) {
+            ImageUtils.getARGBRow(img, y, pixels);
+            int rowOffset = y * w;
+            for (int x = 0; x < w; x++) {
+                int argb = pixels[x];
+                if (((argb >> 24) & 0xFF) < 128) {
+                    result[rowOffset + x] = MapUtils.PALETTE_TRANSPARENT;
+                } else {
+                    int rgb = argb & 0xFFFFFF;
+                    if (rgb != lastRgb) {
+                        lastRgb = rgb;
+                        lastColor = paletteIndex.matchColor(rgb);
+                    }
+                    result[rowOffset + x] = lastColor;
+                }
+            }
+        }
+
+        return result;
+    }
+
+}